@@ -0,0 +1,48 @@
+package benchmark;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of {@link ChessGame#makeMove}, including its validation and the
+ * checkmate and stalemate checks that follow every move.
+ * <p>
+ * Each invocation plays the next move of a knight shuffle that returns to
+ * the starting position every four moves, so the game never needs to be
+ * rebuilt between invocations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MakeMoveBenchmark {
+
+    private ChessGame game;
+    private ChessMove[] cycle;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        game = new ChessGame();
+        cycle = new ChessMove[]{
+                new ChessMove(Positions.square("g1"), Positions.square("f3"), null),
+                new ChessMove(Positions.square("g8"), Positions.square("f6"), null),
+                new ChessMove(Positions.square("f3"), Positions.square("g1"), null),
+                new ChessMove(Positions.square("f6"), Positions.square("g8"), null),
+        };
+        next = 0;
+    }
+
+    @Benchmark
+    public ChessGame makeMove() throws InvalidMoveException {
+        game.makeMove(cycle[next]);
+        next = (next + 1) & 3;
+        return game;
+    }
+}
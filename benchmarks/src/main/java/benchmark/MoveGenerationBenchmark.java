@@ -0,0 +1,65 @@
+package benchmark;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the move generation and game status calls made while
+ * validating a move, measured on an opening position with every piece type
+ * in play. Run with {@code -prof gc} to see allocation rates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MoveGenerationBenchmark {
+
+    private ChessGame game;
+    private ChessBoard board;
+    private ChessPosition bishop;
+    private ChessPiece bishopPiece;
+    private ChessPosition knight;
+
+    @Setup
+    public void setUp() {
+        game = Positions.italianGame();
+        board = game.getBoard();
+        bishop = Positions.square("c4");
+        bishopPiece = board.getPiece(bishop);
+        knight = Positions.square("f3");
+    }
+
+    @Benchmark
+    public Collection<ChessMove> pieceMoves() {
+        return bishopPiece.pieceMoves(board, bishop);
+    }
+
+    @Benchmark
+    public Collection<ChessMove> validMoves() {
+        return game.validMoves(knight);
+    }
+
+    @Benchmark
+    public boolean isInCheckmate() {
+        return game.isInCheckmate(game.getTeamTurn());
+    }
+
+    @Benchmark
+    public boolean isInStalemate() {
+        return game.isInStalemate(game.getTeamTurn());
+    }
+
+    @Benchmark
+    public ChessBoard copyBoard() {
+        return board.copyBoard();
+    }
+}
@@ -0,0 +1,43 @@
+package benchmark;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+
+/**
+ * Positions shared by the benchmarks
+ */
+final class Positions {
+
+    private Positions() {
+    }
+
+    /**
+     * @return a game after 1.e4 e5 2.Nf3 Nc6 3.Bc4 Bc5 4.d3 Nf6, white to move
+     */
+    static ChessGame italianGame() {
+        ChessGame game = new ChessGame();
+        try {
+            play(game, "e2", "e4");
+            play(game, "e7", "e5");
+            play(game, "g1", "f3");
+            play(game, "b8", "c6");
+            play(game, "f1", "c4");
+            play(game, "f8", "c5");
+            play(game, "d2", "d3");
+            play(game, "g8", "f6");
+        } catch (InvalidMoveException e) {
+            throw new IllegalStateException("Benchmark opening is not legal", e);
+        }
+        return game;
+    }
+
+    static void play(ChessGame game, String from, String to) throws InvalidMoveException {
+        game.makeMove(new ChessMove(square(from), square(to), null));
+    }
+
+    static ChessPosition square(String name) {
+        return new ChessPosition(name.charAt(1) - '0', name.charAt(0) - 'a' + 1);
+    }
+}
@@ -2,6 +2,7 @@ package client;
 
 import chess.*;
 import websocket.commands.UserGameCommand;
+import websocket.messages.MoveMessage;
 import java.util.Collection;
 import java.util.Scanner;
 
@@ -13,6 +14,8 @@ public class GameplayUI {
     private final ChessGame.TeamColor playerColor;
     private final boolean isObserver;
     private ChessGame currentGame;
+    // a SYNC has been sent and MOVE messages are ignored until the LOAD_GAME arrives
+    private boolean awaitingSync;
 
     public GameplayUI(Scanner scanner, String authToken, int gameID,
                       ChessGame.TeamColor playerColor, boolean isObserver) {
@@ -28,7 +31,7 @@ public class GameplayUI {
     public void start(String serverUrl) throws Exception {
         webSocketClient.connect(serverUrl);
         webSocketClient.sendCommand(new UserGameCommand(
-                UserGameCommand.CommandType.CONNECT, authToken, gameID));
+                UserGameCommand.CommandType.CONNECT, authToken, gameID, true));
         gameplayLoop();
     }
 
@@ -170,9 +173,39 @@ public class GameplayUI {
 
     public void updateGame(ChessGame game) {
         this.currentGame = game;
+        this.awaitingSync = false;
         redrawBoard();
     }
 
+    /**
+     * Plays a move the server reported onto the local game, asking for the
+     * whole game instead if a move was missed or the result does not match
+     */
+    public void applyMove(MoveMessage moveMessage) {
+        if (awaitingSync || moveMessage.getPly() <= currentGame.getPly()) {
+            return;
+        }
+        if (moveMessage.getPly() == currentGame.getPly() + 1) {
+            try {
+                currentGame.makeMove(moveMessage.getMove());
+                if (currentGame.getStatus() == moveMessage.getStatus()) {
+                    redrawBoard();
+                    return;
+                }
+            } catch (InvalidMoveException e) {
+                // out of step with the server, fall through and resync
+            }
+        }
+        awaitingSync = true;
+        try {
+            webSocketClient.sendCommand(new UserGameCommand(
+                    UserGameCommand.CommandType.SYNC, authToken, gameID));
+        } catch (Exception e) {
+            awaitingSync = false;
+            displayError("Failed to resync game: " + e.getMessage());
+        }
+    }
+
     public void displayError(String error) {
         System.out.println("Error: " + error);
     }
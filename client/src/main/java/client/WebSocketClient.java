@@ -65,6 +65,10 @@ public class WebSocketClient {
                     ErrorMessage errorMsg = gson.fromJson(message, ErrorMessage.class);
                     gameplayUI.displayError(errorMsg.getErrorMessage());
                 }
+                case MOVE -> {
+                    MoveMessage moveMsg = gson.fromJson(message, MoveMessage.class);
+                    gameplayUI.applyMove(moveMsg);
+                }
                 case NOTIFICATION -> {
                     NotificationMessage notificationMsg = gson.fromJson(message, NotificationMessage.class);
                     gameplayUI.displayNotification(notificationMsg.getMessage());
@@ -0,0 +1,638 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import model.AuthData;
+import model.GameData;
+import model.GameSummary;
+import model.UserData;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link DataAccess} that remembers auth token lookups and live games in
+ * memory and sends everything else straight to the wrapped data access.
+ * <p>
+ * Tokens found by {@link #getAuth} and {@link #getUserByAuthToken} are kept
+ * for a limited time, with the least recently used dropped once the cache
+ * is full. Deleting a token or clearing the auth or user tables drops them
+ * immediately. Unknown tokens are not remembered, so a token works as soon
+ * as it is created.
+ * <p>
+ * A game stays in memory while it is pinned. Reads of a pinned game are
+ * answered from memory, and board updates are written behind: updates
+ * arriving close together are saved once, shortly after the first of them.
+ * Changes to the players or the name of a game are saved right away, and a
+ * game is saved when its last pin is released. Moves recorded for a pinned
+ * game are queued the same way and recorded together. Code that changes a
+ * pinned game's {@link ChessGame} must hold the game's lock while doing so,
+ * since saves copy the game under that lock.
+ * <p>
+ * No database call is made while holding a monitor or inside a map update,
+ * so a slow save only holds up the game being saved, and never pins a
+ * virtual thread to its carrier.
+ */
+public class CachingDataAccess implements DataAccess {
+    private static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final int DEFAULT_MAX_ENTRIES = 10_000;
+    private static final long FLUSH_DELAY_MILLIS = 1_000;
+    // failed saves are retried with the delay doubling each time, then given up on
+    private static final int MAX_FLUSH_ATTEMPTS = 5;
+    private static final ScheduledExecutorService FLUSHER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "game-write-behind");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final DataAccess delegate;
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final Map<String, AuthEntry> authCache;
+    // bumped by every invalidation, so a lookup that raced one does not cache what it read
+    private final AtomicLong invalidations = new AtomicLong();
+    private final Map<Integer, ActiveGame> activeGames = new ConcurrentHashMap<>();
+
+    public CachingDataAccess(DataAccess delegate) {
+        this(delegate, DEFAULT_TTL_MILLIS, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * @param ttlMillis  how long a looked up token is trusted before it is read again
+     * @param maxEntries most tokens to remember at once
+     */
+    public CachingDataAccess(DataAccess delegate, long ttlMillis, int maxEntries) {
+        this.delegate = delegate;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.maxEntries = maxEntries;
+        // access ordered, so the least recently used token is the one dropped when full
+        this.authCache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, AuthEntry> eldest) {
+                return size() > CachingDataAccess.this.maxEntries;
+            }
+        });
+    }
+
+    @Override
+    public void clearUsers() throws DataAccessException {
+        delegate.clearUsers();
+        invalidateAll();
+    }
+
+    @Override
+    public void clearGames() throws DataAccessException {
+        // saves already scheduled for these games must not write them back
+        activeGames.values().removeIf(active -> {
+            active.discard();
+            return true;
+        });
+        delegate.clearGames();
+    }
+
+    @Override
+    public void clearAuth() throws DataAccessException {
+        delegate.clearAuth();
+        invalidateAll();
+    }
+
+    @Override
+    public void createUser(UserData user) throws DataAccessException {
+        delegate.createUser(user);
+    }
+
+    @Override
+    public UserData getUser(String username) throws DataAccessException {
+        return delegate.getUser(username);
+    }
+
+    @Override
+    public int createGame(GameData game) throws DataAccessException {
+        return delegate.createGame(game);
+    }
+
+    @Override
+    public GameData getGame(int gameID) throws DataAccessException {
+        ActiveGame active = pinned(gameID);
+        return active != null ? active.data : delegate.getGame(gameID);
+    }
+
+    @Override
+    public List<GameData> listGames() throws DataAccessException {
+        return delegate.listGames();
+    }
+
+    @Override
+    public List<GameSummary> listGameSummaries(int afterGameID, int limit, boolean openOnly, String player)
+            throws DataAccessException {
+        return delegate.listGameSummaries(afterGameID, limit, openOnly, player);
+    }
+
+    @Override
+    public void updateGame(GameData game) throws DataAccessException {
+        ActiveGame active = pinned(game.gameID());
+        if (active == null) {
+            delegate.updateGame(game);
+            return;
+        }
+        GameData previous = active.data;
+        active.data = game;
+        if (game.game() == previous.game() && Objects.equals(game.whiteUser(), previous.whiteUser())
+                && Objects.equals(game.blackUser(), previous.blackUser())
+                && Objects.equals(game.gameName(), previous.gameName())) {
+            if (active.markDirty()) {
+                scheduleFlush(active);
+            }
+        } else {
+            active.markDirty();
+            active.flush();
+        }
+    }
+
+    @Override
+    public void appendMoves(int gameID, int firstPly, List<ChessMove> moves, ChessGame game)
+            throws DataAccessException {
+        ActiveGame active = pinned(gameID);
+        if (active == null) {
+            delegate.appendMoves(gameID, firstPly, moves, game);
+        } else if (active.addMoves(firstPly, moves, game)) {
+            scheduleFlush(active);
+        }
+    }
+
+    @Override
+    public List<ChessMove> getMoves(int gameID) throws DataAccessException {
+        ActiveGame active = pinned(gameID);
+        if (active == null) {
+            return delegate.getMoves(gameID);
+        }
+        // a flush holds this lock, so no move is both queued and already recorded
+        active.saveLock.lock();
+        try {
+            List<ChessMove> moves = delegate.getMoves(gameID);
+            moves.addAll(active.getPendingMoves());
+            return moves;
+        } finally {
+            active.saveLock.unlock();
+        }
+    }
+
+    @Override
+    public void exportGames(int gameID, GameExporter exporter) throws DataAccessException, IOException {
+        // write out moves still waiting in memory so the export includes them
+        flush();
+        delegate.exportGames(gameID, exporter);
+    }
+
+    @Override
+    public void createAuth(AuthData auth) throws DataAccessException {
+        long generation = invalidations.get();
+        delegate.createAuth(auth);
+        remember(auth.authToken(), new AuthEntry(auth, null, System.nanoTime() + ttlNanos), generation);
+    }
+
+    @Override
+    public AuthData getAuth(String authToken) throws DataAccessException {
+        if (authToken == null) {
+            return null;
+        }
+        AuthEntry entry = lookup(authToken);
+        if (entry != null) {
+            return entry.auth();
+        }
+        long generation = invalidations.get();
+        AuthData auth = delegate.getAuth(authToken);
+        if (auth != null) {
+            remember(authToken, new AuthEntry(auth, null, System.nanoTime() + ttlNanos), generation);
+        }
+        return auth;
+    }
+
+    @Override
+    public void deleteAuth(String authToken) throws DataAccessException {
+        try {
+            delegate.deleteAuth(authToken);
+        } finally {
+            invalidations.incrementAndGet();
+            authCache.remove(authToken);
+        }
+    }
+
+    @Override
+    public UserData getUserByAuthToken(String authToken) throws DataAccessException {
+        if (authToken == null) {
+            return null;
+        }
+        AuthEntry entry = lookup(authToken);
+        if (entry != null && entry.user() != null) {
+            return entry.user();
+        }
+        long generation = invalidations.get();
+        UserData user = delegate.getUserByAuthToken(authToken);
+        if (user != null) {
+            AuthData auth = entry != null ? entry.auth() : new AuthData(authToken, user.username());
+            long expiresAt = entry != null ? entry.expiresAt() : System.nanoTime() + ttlNanos;
+            remember(authToken, new AuthEntry(auth, user, expiresAt), generation);
+        }
+        return user;
+    }
+
+    @Override
+    public GameData pinGame(int gameID) throws DataAccessException {
+        ActiveGame[] created = new ActiveGame[1];
+        ActiveGame active = activeGames.compute(gameID, (id, existing) -> {
+            if (existing != null) {
+                existing.pins++;
+                return existing;
+            }
+            created[0] = new ActiveGame(id);
+            return created[0];
+        });
+        if (active == created[0]) {
+            // anyone else pinning the game meanwhile waits for this load
+            active.load();
+        }
+        return active.awaitLoaded();
+    }
+
+    @Override
+    public void unpinGame(int gameID) throws DataAccessException {
+        ActiveGame[] released = new ActiveGame[1];
+        activeGames.computeIfPresent(gameID, (id, active) -> {
+            if (--active.pins <= 0) {
+                released[0] = active;
+            }
+            return active;
+        });
+        ActiveGame active = released[0];
+        if (active == null) {
+            return;
+        }
+        // the game stays in the map while it is saved, so a new pin reuses it rather than reading it back early
+        try {
+            active.flush();
+        } catch (DataAccessException ex) {
+            if (active.claimFlush()) {
+                scheduleFlush(active);
+            }
+            throw ex;
+        }
+        retireIfUnused(active);
+    }
+
+    @Override
+    public void flush() throws DataAccessException {
+        DataAccessException failure = null;
+        for (ActiveGame active : activeGames.values()) {
+            try {
+                active.flush();
+            } catch (DataAccessException ex) {
+                failure = ex;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void scheduleFlush(ActiveGame active) {
+        scheduleFlush(active, FLUSH_DELAY_MILLIS);
+    }
+
+    private void scheduleFlush(ActiveGame active, long delayMillis) {
+        FLUSHER.schedule(() -> flushScheduled(active), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void flushScheduled(ActiveGame active) {
+        try {
+            active.flush();
+            active.clearFailures();
+            // the last pin may have been released while a failed save was being retried
+            retireIfUnused(active);
+        } catch (DataAccessException ex) {
+            int failures = active.recordFailure();
+            if (failures >= MAX_FLUSH_ATTEMPTS) {
+                System.err.println("Failed to save game " + active.gameID + " " + failures
+                        + " times, dropping its unsaved changes: " + ex.getMessage());
+                active.dropUnsavedChanges();
+            } else if (active.hasUnsavedChanges()) {
+                System.err.println("Failed to save game " + active.gameID + ", retrying: " + ex.getMessage());
+                if (active.claimFlush()) {
+                    scheduleFlush(active, FLUSH_DELAY_MILLIS << failures);
+                }
+                return;
+            } else {
+                System.err.println("Failed to save game " + active.gameID + ", not retrying: " + ex.getMessage());
+            }
+            retireIfUnused(active);
+        }
+    }
+
+    /**
+     * @return true if the failure was the database refusing the data, such as
+     * a duplicate or missing key, which saving it again cannot fix
+     */
+    private static boolean isPermanent(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sql && sql.getSQLState() != null && sql.getSQLState().startsWith("23")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Drops a saved game from memory, unless it was pinned again or changed
+     * while it was being saved
+     */
+    private void retireIfUnused(ActiveGame active) {
+        activeGames.computeIfPresent(active.gameID,
+                (id, current) -> current == active && current.pins <= 0 && !current.hasUnsavedChanges() ? null : current);
+    }
+
+    /**
+     * @return the pinned game, once it has finished loading, or null if the game is not in memory
+     */
+    private ActiveGame pinned(int gameID) {
+        ActiveGame active = activeGames.get(gameID);
+        if (active == null) {
+            return null;
+        }
+        try {
+            return active.loaded.join() != null ? active : null;
+        } catch (CompletionException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the cached entry for the token, or null if there is none or it has expired
+     */
+    private AuthEntry lookup(String authToken) {
+        AuthEntry entry = authCache.get(authToken);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt() - System.nanoTime() < 0) {
+            authCache.remove(authToken, entry);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Caches an entry read while the invalidation count was {@code generation}.
+     * If an invalidation has happened since, the entry may already be stale,
+     * so it is dropped again.
+     */
+    private void remember(String authToken, AuthEntry entry, long generation) {
+        authCache.put(authToken, entry);
+        if (invalidations.get() != generation) {
+            authCache.remove(authToken, entry);
+        }
+    }
+
+    /**
+     * @return how many tokens are cached right now
+     */
+    int cachedTokenCount() {
+        return authCache.size();
+    }
+
+    private void invalidateAll() {
+        invalidations.incrementAndGet();
+        authCache.clear();
+    }
+
+    /**
+     * A pinned game and whether it has updates that have not been saved
+     */
+    private class ActiveGame {
+        private final int gameID;
+        // completed with the game once it has been read, or null if there is no such game
+        private final CompletableFuture<GameData> loaded = new CompletableFuture<>();
+        // held while saving, so saves happen one at a time and in order
+        private final ReentrantLock saveLock = new ReentrantLock();
+        private volatile GameData data;
+        private int pins = 1; // only changed inside activeGames.compute
+        // the rest is guarded by this
+        private boolean dirty;
+        private final List<ChessMove> pendingMoves = new ArrayList<>();
+        private int pendingFirstPly;
+        private ChessGame pendingGame;
+        private boolean flushScheduled;
+        private boolean discarded;
+        private int failedFlushes;
+
+        ActiveGame(int gameID) {
+            this.gameID = gameID;
+        }
+
+        /**
+         * Reads the game, dropping this entry again if that fails or there is no such game
+         */
+        void load() {
+            try {
+                GameData game = delegate.getGame(gameID);
+                if (game == null) {
+                    activeGames.remove(gameID, this);
+                }
+                data = game;
+                loaded.complete(game);
+            } catch (DataAccessException | RuntimeException ex) {
+                activeGames.remove(gameID, this);
+                loaded.completeExceptionally(ex);
+            }
+        }
+
+        /**
+         * @return the game, once it has been read, or null if there is no such game
+         */
+        GameData awaitLoaded() throws DataAccessException {
+            try {
+                return loaded.join();
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof RuntimeException runtime) {
+                    throw runtime;
+                }
+                throw new DataAccessException(ex.getCause().getMessage(), ex.getCause());
+            }
+        }
+
+        /**
+         * Notes that the whole game needs saving
+         *
+         * @return true if a flush needs to be scheduled for this update
+         */
+        synchronized boolean markDirty() {
+            if (discarded) {
+                return false;
+            }
+            dirty = true;
+            return claimFlush();
+        }
+
+        /**
+         * Queues moves to be recorded
+         *
+         * @param game the game after the last of the moves
+         * @return true if a flush needs to be scheduled for these moves
+         */
+        synchronized boolean addMoves(int firstPly, List<ChessMove> moves, ChessGame game) {
+            if (discarded) {
+                return false;
+            }
+            if (pendingMoves.isEmpty()) {
+                pendingFirstPly = firstPly;
+            }
+            pendingMoves.addAll(moves);
+            pendingGame = game;
+            return claimFlush();
+        }
+
+        /**
+         * @return true if no flush was scheduled, in which case the caller must schedule one
+         */
+        synchronized boolean claimFlush() {
+            if (flushScheduled) {
+                return false;
+            }
+            flushScheduled = true;
+            return true;
+        }
+
+        /**
+         * Forgets the game for good, after it was deleted, so nothing still
+         * queued for it is saved
+         */
+        synchronized void discard() {
+            discarded = true;
+            dropUnsavedChanges();
+        }
+
+        synchronized void dropUnsavedChanges() {
+            pendingMoves.clear();
+            pendingGame = null;
+            dirty = false;
+            failedFlushes = 0;
+        }
+
+        /**
+         * @return how many saves in a row have now failed
+         */
+        synchronized int recordFailure() {
+            return ++failedFlushes;
+        }
+
+        synchronized void clearFailures() {
+            failedFlushes = 0;
+        }
+
+        synchronized boolean hasUnsavedChanges() {
+            return dirty || !pendingMoves.isEmpty();
+        }
+
+        synchronized List<ChessMove> getPendingMoves() {
+            return new ArrayList<>(pendingMoves);
+        }
+
+        Object lock() {
+            GameData game = data;
+            return game != null && game.game() != null ? game.game() : this;
+        }
+
+        /**
+         * Records the queued moves, then saves the whole game if it changed
+         * in other ways. What needs saving is copied under the game's lock,
+         * so the saved game matches the recorded moves, and then written
+         * without holding any monitor. Moves the database refuses outright are
+         * dropped rather than queued again.
+         */
+        void flush() throws DataAccessException {
+            if (data == null) {
+                return; // still loading, or there was nothing to load
+            }
+            saveLock.lock();
+            try {
+                GameData game;
+                List<ChessMove> moves;
+                int firstPly;
+                ChessGame movesGame;
+                boolean writeGame;
+                synchronized (lock()) {
+                    synchronized (this) {
+                        flushScheduled = false;
+                        if (discarded) {
+                            return;
+                        }
+                        moves = new ArrayList<>(pendingMoves);
+                        firstPly = pendingFirstPly;
+                        movesGame = pendingGame;
+                        writeGame = dirty;
+                        pendingMoves.clear();
+                        pendingGame = null;
+                        dirty = false;
+                    }
+                    game = data;
+                    if (movesGame != null) {
+                        movesGame = copy(movesGame);
+                    }
+                    if (writeGame && game.game() != null) {
+                        game = new GameData(game.gameID(), game.whiteUser(), game.blackUser(), game.gameName(),
+                                copy(game.game()));
+                    }
+                }
+                if (!moves.isEmpty()) {
+                    try {
+                        delegate.appendMoves(gameID, firstPly, moves, movesGame);
+                    } catch (DataAccessException | RuntimeException ex) {
+                        synchronized (this) {
+                            if (!discarded && !isPermanent(ex)) {
+                                pendingMoves.addAll(0, moves);
+                                pendingFirstPly = firstPly;
+                                if (pendingGame == null) {
+                                    pendingGame = movesGame;
+                                }
+                            }
+                            dirty |= writeGame && !discarded;
+                        }
+                        throw ex;
+                    }
+                }
+                if (writeGame) {
+                    try {
+                        delegate.updateGame(game);
+                    } catch (DataAccessException | RuntimeException ex) {
+                        synchronized (this) {
+                            dirty = !discarded && !isPermanent(ex);
+                        }
+                        throw ex;
+                    }
+                }
+            } finally {
+                saveLock.unlock();
+            }
+        }
+
+        private static ChessGame copy(ChessGame game) {
+            return ChessGame.decode(game.encode());
+        }
+    }
+
+    private record AuthEntry(AuthData auth, UserData user, long expiresAt) {
+    }
+}
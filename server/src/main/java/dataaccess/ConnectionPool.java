@@ -0,0 +1,503 @@
+package dataaccess;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded pool of MySQL connections.
+ * <p>
+ * Connections handed out by {@link #borrow()} look like ordinary connections,
+ * but closing one returns it to the pool instead of closing the socket, so
+ * the existing try-with-resources blocks keep working unchanged. A connection
+ * that has sat idle for a while is validated before it is handed out, idle
+ * connections past the idle timeout are closed, and a connection held longer
+ * than the leak threshold is reported along with where it was borrowed.
+ * <p>
+ * Each connection also keeps the statements prepared on it. Preparing SQL the
+ * connection has seen before hands back the statement from last time, and
+ * closing that statement only resets it for the next caller, so each statement is
+ * parsed once per connection rather than once per call.
+ */
+class ConnectionPool {
+    private static final long VALIDATION_BYPASS_MILLIS = 500;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final long HOUSEKEEPING_INTERVAL_MILLIS = 5_000;
+    private static final long LEAK_REPORT_INTERVAL_MILLIS = 60_000;
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final String catalog;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long leakThresholdMillis;
+    private final int statementCacheSize;
+
+    private final Semaphore permits;
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService housekeeper;
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+    private volatile boolean closed;
+    // only used by the housekeeping thread
+    private long lastLeakReport;
+    private int unreportedLeaks;
+
+    /**
+     * @param borrowTimeoutMillis how long {@link #borrow()} waits for a connection when the pool is exhausted
+     * @param leakThresholdMillis how long a connection may be held before it is reported, or 0 to never report
+     */
+    ConnectionPool(String url, String username, String password, String catalog, int maxSize,
+                   long borrowTimeoutMillis, long idleTimeoutMillis, long leakThresholdMillis, int statementCacheSize) {
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.catalog = catalog;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep,
+                HOUSEKEEPING_INTERVAL_MILLIS, HOUSEKEEPING_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection, waiting for one to be returned if the pool is at
+     * its maximum size. Close the connection to give it back.
+     */
+    Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("connection pool is closed");
+        }
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("timed out waiting for a pooled connection");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("interrupted waiting for a pooled connection", ex);
+        }
+        try {
+            PooledConnection pooled = takeIdle();
+            if (pooled == null) {
+                pooled = new PooledConnection(open());
+            }
+            pooled.borrowedAt = System.currentTimeMillis();
+            pooled.borrowSite = leakThresholdMillis > 0 ? new Throwable("connection borrowed here") : null;
+            pooled.leakReported = false;
+            borrowed.add(pooled);
+            return pooled.newHandle();
+        } catch (SQLException | RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    private PooledConnection takeIdle() {
+        while (true) {
+            PooledConnection pooled;
+            synchronized (idle) {
+                pooled = idle.pollFirst();
+            }
+            if (pooled == null) {
+                return null;
+            }
+            long idleFor = System.currentTimeMillis() - pooled.lastReturned;
+            if (idleFor > idleTimeoutMillis) {
+                pooled.closePhysical();
+            } else if (idleFor < VALIDATION_BYPASS_MILLIS || pooled.isValid()) {
+                return pooled;
+            } else {
+                pooled.closePhysical();
+            }
+        }
+    }
+
+    private Connection open() throws SQLException {
+        Connection connection = DriverManager.getConnection(url, username, password);
+        connection.setCatalog(catalog);
+        return connection;
+    }
+
+    private void release(PooledConnection pooled) {
+        borrowed.remove(pooled);
+        try {
+            if (closed || pooled.connection.isClosed()) {
+                pooled.closePhysical();
+                return;
+            }
+            pooled.checkInStatements();
+            if (!pooled.connection.getAutoCommit()) {
+                pooled.connection.rollback();
+                pooled.connection.setAutoCommit(true);
+            }
+            pooled.lastReturned = System.currentTimeMillis();
+            synchronized (idle) {
+                idle.offerFirst(pooled);
+            }
+        } catch (SQLException ex) {
+            pooled.closePhysical();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void housekeep() {
+        long now = System.currentTimeMillis();
+        synchronized (idle) {
+            Iterator<PooledConnection> iterator = idle.iterator();
+            while (iterator.hasNext()) {
+                PooledConnection pooled = iterator.next();
+                if (now - pooled.lastReturned > idleTimeoutMillis) {
+                    iterator.remove();
+                    pooled.closePhysical();
+                }
+            }
+        }
+        if (leakThresholdMillis > 0) {
+            for (PooledConnection pooled : borrowed) {
+                if (!pooled.leakReported && now - pooled.borrowedAt > leakThresholdMillis) {
+                    pooled.leakReported = true;
+                    reportLeak(pooled, now);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reports a connection held past the leak threshold, on one line, and at
+     * most once a minute. Leaks found in between are counted in the next
+     * report instead.
+     */
+    private void reportLeak(PooledConnection pooled, long now) {
+        if (lastLeakReport != 0 && now - lastLeakReport < LEAK_REPORT_INTERVAL_MILLIS) {
+            unreportedLeaks++;
+            return;
+        }
+        String others = unreportedLeaks > 0 ? " (" + unreportedLeaks + " more since the last report)" : "";
+        lastLeakReport = now;
+        unreportedLeaks = 0;
+        System.err.println("Possible connection leak: connection held for " + (now - pooled.borrowedAt)
+                + " ms, borrowed at " + borrowSite(pooled) + others);
+    }
+
+    /**
+     * @return the first frame that borrowed the connection from outside the pool
+     */
+    private static String borrowSite(PooledConnection pooled) {
+        Throwable site = pooled.borrowSite;
+        if (site != null) {
+            for (StackTraceElement frame : site.getStackTrace()) {
+                String className = frame.getClassName();
+                if (!className.startsWith(ConnectionPool.class.getName())
+                        && !className.equals(DatabaseManager.class.getName())) {
+                    return frame.toString();
+                }
+            }
+        }
+        return "an unknown place";
+    }
+
+    /**
+     * Closes every idle connection and stops the pool. Borrowed connections
+     * are closed as they are returned.
+     */
+    void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        synchronized (idle) {
+            idle.forEach(PooledConnection::closePhysical);
+            idle.clear();
+        }
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * @return how many prepareStatement calls were answered from a connection's statement cache
+     */
+    long getStatementCacheHits() {
+        return statementCacheHits.sum();
+    }
+
+    /**
+     * @return how many prepareStatement calls had to prepare a new statement
+     */
+    long getStatementCacheMisses() {
+        return statementCacheMisses.sum();
+    }
+
+    /**
+     * A physical connection owned by the pool. Each borrow gets a fresh proxy
+     * handle, so a handle closed twice, or used after it was closed, cannot
+     * touch the connection once someone else has borrowed it.
+     */
+    private class PooledConnection {
+        private final Connection connection;
+        private volatile long borrowedAt;
+        private volatile Throwable borrowSite;
+        private volatile boolean leakReported;
+        private long lastReturned = System.currentTimeMillis();
+        // only used by whoever has the connection borrowed, the idle deque's lock orders the hand-offs
+        private final Map<StatementKey, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<StatementKey, CachedStatement> eldest) {
+                if (size() <= statementCacheSize) {
+                    return false;
+                }
+                eldest.getValue().closePhysical();
+                return true;
+            }
+        };
+
+        PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new Handle(this));
+        }
+
+        /**
+         * Hands out the cached statement for this SQL, preparing and caching it
+         * on a miss. If the cached statement is still open from an earlier call
+         * on the same borrow, a plain uncached statement is prepared instead.
+         *
+         * @param autoGeneratedKeys the flag passed to prepareStatement, or -1 if there was none
+         */
+        PreparedStatement prepare(Connection handle, String sql, int autoGeneratedKeys) throws SQLException {
+            StatementKey key = new StatementKey(sql, autoGeneratedKeys);
+            CachedStatement cached = statements.get(key);
+            if (cached != null && cached.current == null) {
+                statementCacheHits.increment();
+                return cached.checkOut(handle);
+            }
+            statementCacheMisses.increment();
+            PreparedStatement statement = autoGeneratedKeys < 0
+                    ? connection.prepareStatement(sql)
+                    : connection.prepareStatement(sql, autoGeneratedKeys);
+            if (cached != null) {
+                return statement;
+            }
+            cached = new CachedStatement(statement);
+            statements.put(key, cached);
+            return cached.checkOut(handle);
+        }
+
+        /**
+         * Closes, as far as the borrower can tell, any cached statement it left open
+         */
+        void checkInStatements() throws SQLException {
+            for (CachedStatement cached : statements.values()) {
+                if (cached.current != null) {
+                    cached.checkIn();
+                }
+            }
+        }
+
+        boolean isValid() {
+            try {
+                return connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+            } catch (SQLException ex) {
+                return false;
+            }
+        }
+
+        void closePhysical() {
+            statements.clear();
+            try {
+                connection.close();
+            } catch (SQLException ignored) {
+                // the connection is being thrown away either way
+            }
+        }
+    }
+
+    private class Handle implements InvocationHandler {
+        private PooledConnection pooled;
+
+        Handle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public synchronized Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (pooled != null) {
+                        PooledConnection returning = pooled;
+                        pooled = null;
+                        release(returning);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return pooled == null || pooled.connection.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "PooledConnection[" + (pooled == null ? "returned" : pooled.connection) + "]";
+                }
+                case "prepareStatement" -> {
+                    if (pooled != null && statementCacheSize > 0 && isCacheable(method)) {
+                        int autoGeneratedKeys = args.length == 2 ? (Integer) args[1] : -1;
+                        return pooled.prepare((Connection) proxy, (String) args[0], autoGeneratedKeys);
+                    }
+                    return delegate(method, args);
+                }
+                default -> {
+                    return delegate(method, args);
+                }
+            }
+        }
+
+        private Object delegate(Method method, Object[] args) throws Throwable {
+            if (pooled == null) {
+                throw new SQLException("connection has already been returned to the pool");
+            }
+            try {
+                return method.invoke(pooled.connection, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        }
+
+        /**
+         * Only {@code prepareStatement(sql)} and {@code prepareStatement(sql, autoGeneratedKeys)}
+         * are cached, the other overloads are not used by the data access classes
+         */
+        private static boolean isCacheable(Method method) {
+            Class<?>[] parameters = method.getParameterTypes();
+            return parameters.length == 1 || (parameters.length == 2 && parameters[1] == int.class);
+        }
+    }
+
+    private record StatementKey(String sql, int autoGeneratedKeys) {
+    }
+
+    /**
+     * A prepared statement kept open for the life of its connection. Each
+     * checkout gets a fresh proxy handle, so closing one twice, or using it
+     * after it was closed, cannot affect whoever checks the statement out next.
+     */
+    private static class CachedStatement {
+        private final PreparedStatement statement;
+        private StatementHandle current;
+
+        CachedStatement(PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+        PreparedStatement checkOut(Connection connection) {
+            current = new StatementHandle(this, connection);
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, current);
+        }
+
+        /**
+         * Puts the statement back the way it was prepared, so nothing the last
+         * borrower set or left open carries over to the next one
+         */
+        void checkIn() throws SQLException {
+            current.cached = null;
+            current = null;
+            ResultSet results = statement.getResultSet();
+            if (results != null) {
+                results.close();
+            }
+            statement.clearParameters();
+            statement.setFetchSize(0);
+            statement.setMaxRows(0);
+            statement.setQueryTimeout(0);
+        }
+
+        void closePhysical() {
+            try {
+                statement.close();
+            } catch (SQLException ignored) {
+                // closing the connection would close it anyway
+            }
+        }
+    }
+
+    private static class StatementHandle implements InvocationHandler {
+        private final Connection connection;
+        private CachedStatement cached;
+
+        StatementHandle(CachedStatement cached, Connection connection) {
+            this.cached = cached;
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (cached != null) {
+                        cached.checkIn();
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return cached == null || cached.statement.isClosed();
+                }
+                case "getConnection" -> {
+                    return connection;
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "CachedStatement[" + (cached == null ? "closed" : cached.statement) + "]";
+                }
+                default -> {
+                    if (cached == null) {
+                        throw new SQLException("statement has already been closed");
+                    }
+                    try {
+                        return method.invoke(cached.statement, args);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getCause();
+                    }
+                }
+            }
+        }
+    }
+}
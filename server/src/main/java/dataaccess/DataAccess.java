@@ -1,7 +1,11 @@
 package dataaccess;
 
+import chess.ChessGame;
+import chess.ChessMove;
 import model.GameData;
+import model.GameSummary;
 import model.UserData;
+import java.io.IOException;
 import java.util.List;
 import model.AuthData;
 
@@ -13,15 +17,76 @@ public interface DataAccess {
     void createUser(UserData user) throws DataAccessException;
     UserData getUser(String username) throws DataAccessException;
 
-    void createGame(GameData game) throws DataAccessException;
+    /**
+     * Stores a new game, ignoring the ID in {@code game}
+     *
+     * @return the ID assigned to the new game
+     */
+    int createGame(GameData game) throws DataAccessException;
     GameData getGame(int gameID)  throws DataAccessException;
 
     List<GameData> listGames()  throws DataAccessException;
+
+    /**
+     * Lists games without loading their boards, in game ID order
+     *
+     * @param afterGameID only list games with a higher ID
+     * @param limit       most games to return, or 0 for no limit
+     * @param openOnly    only list games with an empty seat
+     * @param player      only list games this user plays in, or null for any
+     */
+    List<GameSummary> listGameSummaries(int afterGameID, int limit, boolean openOnly, String player)
+            throws DataAccessException;
     void updateGame(GameData game) throws DataAccessException;
 
+    /**
+     * Records moves made in a game, following on from the moves already recorded
+     *
+     * @param firstPly the game's ply right after the first of the moves was made
+     * @param game     the game after the last of the moves, which may be saved as well
+     */
+    void appendMoves(int gameID, int firstPly, List<ChessMove> moves, ChessGame game) throws DataAccessException;
+
+    /**
+     * @return every move recorded for a game, in the order they were made
+     */
+    List<ChessMove> getMoves(int gameID) throws DataAccessException;
+
+    /**
+     * Passes games to {@code exporter} one at a time, in game ID order,
+     * without loading them all first
+     *
+     * @param gameID the one game to export, or 0 for every game
+     * @throws IOException if the exporter fails
+     */
+    void exportGames(int gameID, GameExporter exporter) throws DataAccessException, IOException;
+
     void createAuth(AuthData auth) throws DataAccessException;
     AuthData getAuth(String authToken) throws DataAccessException;
     void deleteAuth(String authToken) throws DataAccessException;
 
     UserData getUserByAuthToken(String authToken) throws DataAccessException;
+
+    /**
+     * Marks a game as being played live, so an implementation may keep it in
+     * memory until every pin is released. Each call must be matched by a
+     * call to {@link #unpinGame}.
+     *
+     * @return the game, or null if there is no game with that ID (in which case nothing is pinned)
+     */
+    default GameData pinGame(int gameID) throws DataAccessException {
+        return getGame(gameID);
+    }
+
+    /**
+     * Releases a pin taken by {@link #pinGame}, saving the game once nothing pins it
+     */
+    default void unpinGame(int gameID) throws DataAccessException {
+    }
+
+    /**
+     * Saves any game updates that have not been written yet
+     */
+    default void flush() throws DataAccessException {
+    }
 }
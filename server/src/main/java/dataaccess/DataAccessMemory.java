@@ -1,10 +1,15 @@
 package dataaccess;
 
+import chess.ChessGame;
+import chess.ChessMove;
 import model.AuthData;
 import model.GameData;
+import model.GameSummary;
 import model.UserData;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.List;
@@ -14,6 +19,7 @@ public class DataAccessMemory implements DataAccess {
     private final Map<String, UserData> users = new HashMap<>();
     private final Map<Integer, GameData> games = new HashMap<>();
     private final Map<String, AuthData> authTokens = new HashMap<>();
+    private final Map<Integer, List<ChessMove>> moves = new HashMap<>();
     private int nextGameID = 1;
 
     @Override
@@ -24,6 +30,7 @@ public class DataAccessMemory implements DataAccess {
     @Override
     public void clearGames() throws DataAccessException {
         games.clear();
+        moves.clear();
         nextGameID = 1;
     }
 
@@ -43,11 +50,12 @@ public class DataAccessMemory implements DataAccess {
     }
 
     @Override
-    public void createGame(GameData game) throws DataAccessException {
+    public int createGame(GameData game) throws DataAccessException {
         int newGameID = getNextGameID();
         GameData gameWithID = new GameData(newGameID, game.whiteUser(), game.blackUser(), 
                                          game.gameName(), game.game());
         games.put(newGameID, gameWithID);
+        return newGameID;
     }
 
     @Override
@@ -60,11 +68,57 @@ public class DataAccessMemory implements DataAccess {
         return new ArrayList<>(games.values());
     }
 
+    @Override
+    public List<GameSummary> listGameSummaries(int afterGameID, int limit, boolean openOnly, String player)
+            throws DataAccessException {
+        return games.values().stream()
+                .filter(game -> game.gameID() > afterGameID)
+                .filter(game -> !openOnly || game.whiteUser() == null || game.blackUser() == null)
+                .filter(game -> player == null || player.equals(game.whiteUser()) || player.equals(game.blackUser()))
+                .sorted(Comparator.comparingInt(GameData::gameID))
+                .limit(limit > 0 ? limit : Long.MAX_VALUE)
+                .map(game -> new GameSummary(game.gameID(), game.whiteUser(), game.blackUser(), game.gameName()))
+                .collect(Collectors.toList());
+    }
+
     @Override
     public void updateGame(GameData game) throws DataAccessException {
         games.put(game.gameID(), game);
     }
 
+    @Override
+    public void appendMoves(int gameID, int firstPly, List<ChessMove> newMoves, ChessGame game)
+            throws DataAccessException {
+        moves.computeIfAbsent(gameID, id -> new ArrayList<>()).addAll(newMoves);
+        games.computeIfPresent(gameID, (id, stored) ->
+                new GameData(id, stored.whiteUser(), stored.blackUser(), stored.gameName(), game));
+    }
+
+    @Override
+    public List<ChessMove> getMoves(int gameID) throws DataAccessException {
+        return new ArrayList<>(moves.getOrDefault(gameID, List.of()));
+    }
+
+    @Override
+    public void exportGames(int gameID, GameExporter exporter) throws DataAccessException, IOException {
+        List<GameData> selected = games.values().stream()
+                .filter(game -> gameID == 0 || game.gameID() == gameID)
+                .sorted(Comparator.comparingInt(GameData::gameID))
+                .toList();
+        for (GameData game : selected) {
+            List<ChessMove> recorded = getMoves(game.gameID());
+            GameSummary summary = new GameSummary(game.gameID(), game.whiteUser(), game.blackUser(), game.gameName());
+            if (game.game() == null) {
+                exporter.export(summary, new ChessGame(), recorded, null);
+            } else if (recorded.size() == game.game().getPly()) {
+                exporter.export(summary, new ChessGame(), recorded, game.game().getResignedTeam());
+            } else {
+                // not every move was recorded, so export the position as it stands
+                exporter.export(summary, ChessGame.decode(game.game().encode()), List.of(), null);
+            }
+        }
+    }
+
     @Override
     public void createAuth(AuthData auth) throws DataAccessException {
         authTokens.put(auth.authToken(), auth);
@@ -8,6 +8,12 @@ public class DatabaseManager {
     private static String dbUsername;
     private static String dbPassword;
     private static String connectionUrl;
+    private static int poolMaxSize;
+    private static long poolBorrowTimeoutMillis;
+    private static long poolIdleTimeoutMillis;
+    private static long poolLeakDetectionMillis;
+    private static int poolStatementCacheSize;
+    private static ConnectionPool pool;
 
     /*
      * Load the database information for the db.properties file.
@@ -30,10 +36,11 @@ public class DatabaseManager {
     }
 
     /**
-     * Create a connection to the database and sets the catalog based upon the
-     * properties specified in db.properties. Connections to the database should
-     * be short-lived, and you must close the connection when you are done with it.
-     * The easiest way to do that is with a try-with-resource block.
+     * Borrows a connection from the connection pool, with the catalog set based
+     * upon the properties specified in db.properties. Connections should be
+     * short-lived, and you must close the connection when you are done with it
+     * so it goes back to the pool. The easiest way to do that is with a
+     * try-with-resource block.
      * <br/>
      * <code>
      * try (var conn = DatabaseManager.getConnection()) {
@@ -44,15 +51,59 @@ public class DatabaseManager {
     static Connection getConnection() throws DataAccessException {
         try {
             //do not wrap the following line with a try-with-resources
-            var conn = DriverManager.getConnection(connectionUrl, dbUsername, dbPassword);
-            conn.setCatalog(databaseName);
-            return conn;
+            return getPool().borrow();
         } catch (SQLException ex) {
             throw new DataAccessException("failed to get connection", ex);
         }
     }
 
-    private static void loadPropertiesFromResources() {
+    private static synchronized ConnectionPool getPool() {
+        if (pool == null || pool.isClosed()) {
+            pool = createConnectionPool(poolMaxSize, poolBorrowTimeoutMillis, poolStatementCacheSize);
+        }
+        return pool;
+    }
+
+    /**
+     * Starts a separate pool for the configured database, with its own size
+     * limits. The caller must close it.
+     */
+    static ConnectionPool createConnectionPool(int maxSize, long borrowTimeoutMillis, int statementCacheSize) {
+        return new ConnectionPool(connectionUrl, dbUsername, dbPassword, databaseName, maxSize,
+                borrowTimeoutMillis, poolIdleTimeoutMillis, poolLeakDetectionMillis, statementCacheSize);
+    }
+
+    /**
+     * Closes the pooled connections. A later call to {@link #getConnection()}
+     * starts a new pool.
+     */
+    static public synchronized void closeConnectionPool() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+    }
+
+    /**
+     * @return prepareStatement calls answered from the statement cache since the pool started
+     */
+    static public synchronized long getStatementCacheHits() {
+        return pool == null ? 0 : pool.getStatementCacheHits();
+    }
+
+    /**
+     * @return prepareStatement calls that had to prepare a new statement since the pool started
+     */
+    static public synchronized long getStatementCacheMisses() {
+        return pool == null ? 0 : pool.getStatementCacheMisses();
+    }
+
+    /**
+     * Reads db.properties. Runs when the class loads, and again whenever the
+     * settings are reloaded, as the database tests do after pointing the
+     * server at a database that does not exist.
+     */
+    private static synchronized void loadPropertiesFromResources() {
         try (var propStream = Thread.currentThread().getContextClassLoader().getResourceAsStream("db.properties")) {
             if (propStream == null) {
                 throw new Exception("Unable to load db.properties");
@@ -65,13 +116,29 @@ public class DatabaseManager {
         }
     }
 
-    private static void loadProperties(Properties props) {
+    /**
+     * Switches to new database settings. Connections already borrowed keep
+     * working until they are returned, and every later borrow uses the new
+     * settings.
+     */
+    private static synchronized void loadProperties(Properties props) {
         databaseName = props.getProperty("db.name");
         dbUsername = props.getProperty("db.user");
         dbPassword = props.getProperty("db.password");
 
         var host = props.getProperty("db.host");
         var port = Integer.parseInt(props.getProperty("db.port"));
-        connectionUrl = String.format("jdbc:mysql://%s:%d", host, port);
+        // server-side prepared statements, so the statements cached by the pool are parsed once by MySQL too
+        connectionUrl = String.format("jdbc:mysql://%s:%d?useServerPrepStmts=true", host, port);
+
+        poolMaxSize = Integer.parseInt(props.getProperty("db.pool.maxSize", "10"));
+        poolBorrowTimeoutMillis = Long.parseLong(props.getProperty("db.pool.borrowTimeoutMillis", "30000"));
+        poolIdleTimeoutMillis = Long.parseLong(props.getProperty("db.pool.idleTimeoutMillis", "600000"));
+        // 0 turns leak reports off
+        poolLeakDetectionMillis = Long.parseLong(props.getProperty("db.pool.leakDetectionMillis", "30000"));
+        poolStatementCacheSize = Integer.parseInt(props.getProperty("db.pool.statementCacheSize", "32"));
+
+        // when settings are loaded again, the next connection must come from a pool built with them
+        closeConnectionPool();
     }
 }
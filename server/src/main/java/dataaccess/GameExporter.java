@@ -0,0 +1,23 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import model.GameSummary;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Receives stored games one at a time from {@link DataAccess#exportGames}
+ */
+@FunctionalInterface
+public interface GameExporter {
+    /**
+     * @param game     the game's ID, players and name
+     * @param start    the position the moves are played from, which the exporter may play them onto
+     * @param moves    the game's recorded moves after {@code start}, in order
+     * @param resigned the team that resigned after the last of the moves, or null if the game did not end that way
+     */
+    void export(GameSummary game, ChessGame start, List<ChessMove> moves, ChessGame.TeamColor resigned)
+            throws IOException;
+}
@@ -1,14 +1,31 @@
 package dataaccess;
 
 import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
 import com.google.gson.*;
 import java.sql.*;
 import model.*;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 
 public class SqlDataAccess implements DataAccess{
+    /**
+     * How many moves apart the full game is saved to the games table. Loading
+     * a game replays the moves made since its last snapshot.
+     */
+    private static final int SNAPSHOT_INTERVAL = 20;
+    /**
+     * How many games an export reads at a time. Each batch is read and its
+     * connection released before any of it is written out.
+     */
+    private static final int EXPORT_BATCH_SIZE = 100;
+
     private final Gson gson = new GsonBuilder().create();
 
     public SqlDataAccess() throws DataAccessException {
@@ -22,6 +39,7 @@ public class SqlDataAccess implements DataAccess{
         createUserTable();
         createAuthTable();
         createGameTable();
+        createMoveTable();
     }
 
     private void createUserTable() throws DataAccessException {
@@ -47,7 +65,9 @@ public class SqlDataAccess implements DataAccess{
                 whiteUsername VARCHAR(255),
                 blackUsername VARCHAR(255),
                 gameName VARCHAR(255) NOT NULL,
-                game TEXT NOT NULL
+                game TEXT NOT NULL,
+                INDEX (whiteUsername),
+                INDEX (blackUsername)
             )
             """;
         try (var conn = DatabaseManager.getConnection();
@@ -58,6 +78,25 @@ public class SqlDataAccess implements DataAccess{
         }
     }
 
+    private void createMoveTable() throws DataAccessException {
+        var createMoveTable = """
+            CREATE TABLE IF NOT EXISTS moves (
+                gameID INT NOT NULL,
+                ply INT NOT NULL,
+                move SMALLINT NOT NULL,
+                playedAt TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+                PRIMARY KEY (gameID, ply),
+                FOREIGN KEY (gameID) REFERENCES games (gameID) ON DELETE CASCADE
+            )
+            """;
+        try (var conn = DatabaseManager.getConnection();
+             var preparedStatement = conn.prepareStatement(createMoveTable)) {
+            preparedStatement.executeUpdate();
+        } catch (SQLException ex) {
+            throw new DataAccessException("failed to create move table", ex);
+        }
+    }
+
     private void createAuthTable() throws DataAccessException {
         var createAuthTable = """
             CREATE TABLE IF NOT EXISTS auth (
@@ -86,10 +125,11 @@ public class SqlDataAccess implements DataAccess{
 
     @Override
     public void clearGames() throws DataAccessException {
-        var statement = "DELETE FROM games";
         try (var conn = DatabaseManager.getConnection();
-             var preparedStatement = conn.prepareStatement(statement)) {
-            preparedStatement.executeUpdate();
+             var clearMoves = conn.prepareStatement("DELETE FROM moves");
+             var clearGames = conn.prepareStatement("DELETE FROM games")) {
+            clearMoves.executeUpdate();
+            clearGames.executeUpdate();
         } catch (SQLException ex) {
             throw new DataAccessException("failed to clear games", ex);
         }
@@ -147,24 +187,25 @@ public class SqlDataAccess implements DataAccess{
     }
 
     @Override
-    public void createGame(GameData game) throws DataAccessException {
+    public int createGame(GameData game) throws DataAccessException {
         var statement = "INSERT INTO games (whiteUsername, blackUsername, gameName, game) VALUES (?, ?, ?, ?)";
         try (var conn = DatabaseManager.getConnection();
-             var preparedStatement = conn.prepareStatement(statement, Statement.RETURN_GENERATED_KEYS)) { // <-- FIXED
+             var preparedStatement = conn.prepareStatement(statement, Statement.RETURN_GENERATED_KEYS)) {
             preparedStatement.setString(1, game.whiteUser());
             preparedStatement.setString(2, game.blackUser());
             preparedStatement.setString(3, game.gameName());
-            preparedStatement.setString(4, gson.toJson(game.game()));
+            preparedStatement.setString(4, encodeGame(game.game()));
             preparedStatement.executeUpdate();
 
             try (var rs = preparedStatement.getGeneratedKeys()) {
                 if (rs.next()) {
-                    int generatedId = rs.getInt(1);
+                    return rs.getInt(1);
                 }
             }
         } catch (SQLException ex) {
             throw new DataAccessException("failed to create game", ex);
         }
+        throw new DataAccessException("failed to create game: no ID was generated");
     }
 
     @Override
@@ -175,7 +216,8 @@ public class SqlDataAccess implements DataAccess{
             preparedStatement.setInt(1, gameID);
             try (var rs = preparedStatement.executeQuery()) {
                 if (rs.next()) {
-                    ChessGame chessGame = gson.fromJson(rs.getString("game"), ChessGame.class);
+                    ChessGame chessGame = decodeGame(rs.getString("game"));
+                    replayMoves(conn, gameID, chessGame);
                     return new GameData(
                             rs.getInt("gameID"),
                             rs.getString("whiteUsername"),
@@ -193,20 +235,63 @@ public class SqlDataAccess implements DataAccess{
 
     @Override
     public List<GameData> listGames() throws DataAccessException {
-        var result = new ArrayList<GameData>();
-        var statement = "SELECT gameID, whiteUsername, blackUsername, gameName, game FROM games";
+        var games = new LinkedHashMap<Integer, GameData>();
+        var statement = "SELECT gameID, whiteUsername, blackUsername, gameName, game FROM games ORDER BY gameID";
+        try (var conn = DatabaseManager.getConnection()) {
+            try (var preparedStatement = conn.prepareStatement(statement);
+                 var rs = preparedStatement.executeQuery()) {
+                while (rs.next()) {
+                    games.put(rs.getInt("gameID"), new GameData(
+                            rs.getInt("gameID"),
+                            rs.getString("whiteUsername"),
+                            rs.getString("blackUsername"),
+                            rs.getString("gameName"),
+                            decodeGame(rs.getString("game"))
+                    ));
+                }
+            }
+            replayAllMoves(conn, games);
+        } catch (SQLException ex) {
+            throw new DataAccessException("failed to list games", ex);
+        }
+        return new ArrayList<>(games.values());
+    }
+
+    @Override
+    public List<GameSummary> listGameSummaries(int afterGameID, int limit, boolean openOnly, String player)
+            throws DataAccessException {
+        var statement = new StringBuilder("SELECT gameID, whiteUsername, blackUsername, gameName FROM games WHERE gameID > ?");
+        if (openOnly) {
+            statement.append(" AND (whiteUsername IS NULL OR blackUsername IS NULL)");
+        }
+        if (player != null) {
+            statement.append(" AND (whiteUsername = ? OR blackUsername = ?)");
+        }
+        statement.append(" ORDER BY gameID");
+        if (limit > 0) {
+            statement.append(" LIMIT ?");
+        }
+        var result = new ArrayList<GameSummary>();
         try (var conn = DatabaseManager.getConnection();
-             var preparedStatement = conn.prepareStatement(statement);
-             var rs = preparedStatement.executeQuery()) {
-            while (rs.next()) {
-                ChessGame chessGame = gson.fromJson(rs.getString("game"), ChessGame.class);
-                result.add(new GameData(
-                        rs.getInt("gameID"),
-                        rs.getString("whiteUsername"),
-                        rs.getString("blackUsername"),
-                        rs.getString("gameName"),
-                        chessGame
-                ));
+             var preparedStatement = conn.prepareStatement(statement.toString())) {
+            int parameter = 1;
+            preparedStatement.setInt(parameter++, afterGameID);
+            if (player != null) {
+                preparedStatement.setString(parameter++, player);
+                preparedStatement.setString(parameter++, player);
+            }
+            if (limit > 0) {
+                preparedStatement.setInt(parameter, limit);
+            }
+            try (var rs = preparedStatement.executeQuery()) {
+                while (rs.next()) {
+                    result.add(new GameSummary(
+                            rs.getInt("gameID"),
+                            rs.getString("whiteUsername"),
+                            rs.getString("blackUsername"),
+                            rs.getString("gameName")
+                    ));
+                }
             }
         } catch (SQLException ex) {
             throw new DataAccessException("failed to list games", ex);
@@ -222,7 +307,7 @@ public class SqlDataAccess implements DataAccess{
             preparedStatement.setString(1, game.whiteUser());
             preparedStatement.setString(2, game.blackUser());
             preparedStatement.setString(3, game.gameName());
-            preparedStatement.setString(4, gson.toJson(game.game()));
+            preparedStatement.setString(4, encodeGame(game.game()));
             preparedStatement.setInt(5, game.gameID());
             preparedStatement.executeUpdate();
         } catch (SQLException ex) {
@@ -230,6 +315,224 @@ public class SqlDataAccess implements DataAccess{
         }
     }
 
+    @Override
+    public void appendMoves(int gameID, int firstPly, List<ChessMove> moves, ChessGame game)
+            throws DataAccessException {
+        var statement = "INSERT INTO moves (gameID, ply, move) VALUES (?, ?, ?)";
+        int lastPly = firstPly + moves.size() - 1;
+        try (var conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try (var preparedStatement = conn.prepareStatement(statement)) {
+                int ply = firstPly;
+                for (ChessMove move : moves) {
+                    preparedStatement.setInt(1, gameID);
+                    preparedStatement.setInt(2, ply++);
+                    preparedStatement.setShort(3, (short) move.toCode());
+                    preparedStatement.addBatch();
+                }
+                preparedStatement.executeBatch();
+            }
+            // snapshot whenever these moves cross a multiple of the interval
+            if (lastPly / SNAPSHOT_INTERVAL != (firstPly - 1) / SNAPSHOT_INTERVAL) {
+                try (var preparedStatement = conn.prepareStatement("UPDATE games SET game = ? WHERE gameID = ?")) {
+                    preparedStatement.setString(1, encodeGame(game));
+                    preparedStatement.setInt(2, gameID);
+                    preparedStatement.executeUpdate();
+                }
+            }
+            conn.commit();
+        } catch (SQLException ex) {
+            throw new DataAccessException("failed to record moves", ex);
+        }
+    }
+
+    @Override
+    public List<ChessMove> getMoves(int gameID) throws DataAccessException {
+        var result = new ArrayList<ChessMove>();
+        var statement = "SELECT move FROM moves WHERE gameID = ? ORDER BY ply";
+        try (var conn = DatabaseManager.getConnection();
+             var preparedStatement = conn.prepareStatement(statement)) {
+            preparedStatement.setInt(1, gameID);
+            try (var rs = preparedStatement.executeQuery()) {
+                while (rs.next()) {
+                    result.add(ChessMove.fromCode(rs.getInt("move")));
+                }
+            }
+        } catch (SQLException ex) {
+            throw new DataAccessException("failed to get moves", ex);
+        }
+        return result;
+    }
+
+    @Override
+    public void exportGames(int gameID, GameExporter exporter) throws DataAccessException, IOException {
+        int afterGameID = 0;
+        while (true) {
+            List<ExportedGame> batch = readExportBatch(gameID, afterGameID);
+            // the batch's connection is already back in the pool, however slowly the exporter writes
+            for (ExportedGame game : batch) {
+                exportGame(exporter, game);
+            }
+            if (gameID != 0 || batch.size() < EXPORT_BATCH_SIZE) {
+                return;
+            }
+            afterGameID = batch.get(batch.size() - 1).summary.gameID();
+        }
+    }
+
+    /**
+     * Reads the next games after {@code afterGameID}, in game ID order, along
+     * with their moves
+     *
+     * @param gameID the one game to read, or 0 to read the next batch
+     */
+    private List<ExportedGame> readExportBatch(int gameID, int afterGameID) throws DataAccessException {
+        var gamesStatement = gameID != 0
+                ? "SELECT gameID, whiteUsername, blackUsername, gameName, game FROM games WHERE gameID = ?"
+                : "SELECT gameID, whiteUsername, blackUsername, gameName, game FROM games WHERE gameID > ? "
+                        + "ORDER BY gameID LIMIT ?";
+        var movesStatement = "SELECT gameID, ply, move FROM moves WHERE gameID BETWEEN ? AND ? ORDER BY gameID, ply";
+        List<ExportedGame> batch = new ArrayList<>();
+        try (var conn = DatabaseManager.getConnection()) {
+            try (var preparedStatement = conn.prepareStatement(gamesStatement)) {
+                if (gameID != 0) {
+                    preparedStatement.setInt(1, gameID);
+                } else {
+                    preparedStatement.setInt(1, afterGameID);
+                    preparedStatement.setInt(2, EXPORT_BATCH_SIZE);
+                }
+                try (var rs = preparedStatement.executeQuery()) {
+                    while (rs.next()) {
+                        batch.add(new ExportedGame(new GameSummary(rs.getInt("gameID"), rs.getString("whiteUsername"),
+                                rs.getString("blackUsername"), rs.getString("gameName")), rs.getString("game")));
+                    }
+                }
+            }
+            if (batch.isEmpty()) {
+                return batch;
+            }
+            try (var preparedStatement = conn.prepareStatement(movesStatement)) {
+                preparedStatement.setInt(1, batch.get(0).summary.gameID());
+                preparedStatement.setInt(2, batch.get(batch.size() - 1).summary.gameID());
+                try (var rs = preparedStatement.executeQuery()) {
+                    int index = 0;
+                    while (rs.next()) {
+                        int rowGameID = rs.getInt("gameID");
+                        while (index < batch.size() && batch.get(index).summary.gameID() < rowGameID) {
+                            index++;
+                        }
+                        if (index == batch.size() || batch.get(index).summary.gameID() != rowGameID) {
+                            continue; // a game created after the batch was read
+                        }
+                        ExportedGame game = batch.get(index);
+                        if (game.moves.isEmpty()) {
+                            game.firstPly = rs.getInt("ply");
+                        }
+                        game.moves.add(ChessMove.fromCode(rs.getInt("move")));
+                    }
+                }
+            }
+        } catch (SQLException ex) {
+            throw new DataAccessException("failed to export games", ex);
+        }
+        return batch;
+    }
+
+    /**
+     * Exports a game from its first move when every move was recorded, and
+     * otherwise from its snapshot, followed by the moves recorded after it
+     */
+    private void exportGame(GameExporter exporter, ExportedGame game) throws DataAccessException, IOException {
+        ChessGame stored = decodeGame(game.snapshot);
+        if (stored == null) {
+            exporter.export(game.summary, new ChessGame(), game.moves, null);
+            return;
+        }
+        if (game.firstPly == 1) {
+            // a resignation is saved with the whole game, after the last move
+            exporter.export(game.summary, new ChessGame(), game.moves, stored.getResignedTeam());
+            return;
+        }
+        int alreadyPlayed = game.firstPly == 0 ? 0
+                : Math.max(0, Math.min(game.moves.size(), stored.getPly() - game.firstPly + 1));
+        exporter.export(game.summary, stored, game.moves.subList(alreadyPlayed, game.moves.size()), null);
+    }
+
+    /**
+     * Stores a game in its compact binary encoding, as Base64 so it still
+     * fits the text column
+     */
+    private String encodeGame(ChessGame game) {
+        if (game == null) {
+            return gson.toJson(null);
+        }
+        return Base64.getEncoder().encodeToString(game.encode());
+    }
+
+    /**
+     * Reads a stored game. Games saved before the binary encoding are JSON,
+     * which never looks like the Base64 of an encoded game.
+     */
+    private ChessGame decodeGame(String stored) throws DataAccessException {
+        if (stored.startsWith("{") || stored.equals("null")) {
+            try {
+                return gson.fromJson(stored, ChessGame.class);
+            } catch (JsonParseException ex) {
+                throw new DataAccessException("stored game is not valid", ex);
+            }
+        }
+        try {
+            return ChessGame.decode(Base64.getDecoder().decode(stored));
+        } catch (IllegalArgumentException ex) {
+            throw new DataAccessException("stored game is not valid", ex);
+        }
+    }
+
+    /**
+     * Brings a game loaded from its snapshot up to date by playing the moves
+     * recorded after it. The snapshot's ply says which moves it already has.
+     */
+    private void replayMoves(Connection conn, int gameID, ChessGame game) throws SQLException, DataAccessException {
+        if (game == null) {
+            return;
+        }
+        var statement = "SELECT move FROM moves WHERE gameID = ? AND ply > ? ORDER BY ply";
+        try (var preparedStatement = conn.prepareStatement(statement)) {
+            preparedStatement.setInt(1, gameID);
+            preparedStatement.setInt(2, game.getPly());
+            try (var rs = preparedStatement.executeQuery()) {
+                while (rs.next()) {
+                    game.makeMove(ChessMove.fromCode(rs.getInt("move")));
+                }
+            }
+        } catch (InvalidMoveException ex) {
+            throw new DataAccessException("recorded moves for game " + gameID + " do not replay", ex);
+        }
+    }
+
+    /**
+     * Brings every listed game up to date with one read of the moves table, rather than one query per game.
+     * Moves at or before a game's snapshot ply are already part of its snapshot and are skipped.
+     */
+    private void replayAllMoves(Connection conn, Map<Integer, GameData> games) throws SQLException, DataAccessException {
+        var statement = "SELECT gameID, ply, move FROM moves ORDER BY gameID, ply";
+        try (var preparedStatement = conn.prepareStatement(statement);
+             var rs = preparedStatement.executeQuery()) {
+            while (rs.next()) {
+                int gameID = rs.getInt("gameID");
+                GameData data = games.get(gameID);
+                if (data == null || data.game() == null || rs.getInt("ply") <= data.game().getPly()) {
+                    continue;
+                }
+                try {
+                    data.game().makeMove(ChessMove.fromCode(rs.getInt("move")));
+                } catch (InvalidMoveException ex) {
+                    throw new DataAccessException("recorded moves for game " + gameID + " do not replay", ex);
+                }
+            }
+        }
+    }
+
     @Override
     public void createAuth(AuthData auth) throws DataAccessException {
         var statement = "INSERT INTO auth (authToken, username) VALUES (?, ?)";
@@ -300,4 +603,19 @@ public class SqlDataAccess implements DataAccess{
         }
         return null;
     }
+
+    /**
+     * A game read for export, with the moves recorded for it
+     */
+    private static class ExportedGame {
+        private final GameSummary summary;
+        private final String snapshot;
+        private final List<ChessMove> moves = new ArrayList<>();
+        private int firstPly; // the ply of the first recorded move, or 0 if none were recorded
+
+        ExportedGame(GameSummary summary, String snapshot) {
+            this.summary = summary;
+            this.snapshot = snapshot;
+        }
+    }
 }
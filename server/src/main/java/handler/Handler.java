@@ -11,6 +11,11 @@ import service.results.*;
 import spark.Request;
 import spark.Response;
 
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
 
 public class Handler {
     private final DataAccess dataAccess;
@@ -90,7 +95,21 @@ public class Handler {
     public Object listGames(Request req, Response res) {
         try {
             String authToken = req.headers("authorization");
-            ListGamesRequest request = new ListGamesRequest(authToken);
+            int afterGameID;
+            int limit;
+            try {
+                afterGameID = Integer.parseInt(req.queryParamOrDefault("after", "0"));
+                limit = Integer.parseInt(req.queryParamOrDefault("limit", "0"));
+            } catch (NumberFormatException e) {
+                res.status(400);
+                return gson.toJson(new ErrorResponse("Error: bad request"));
+            }
+            if (limit < 0) {
+                res.status(400);
+                return gson.toJson(new ErrorResponse("Error: bad request"));
+            }
+            boolean openOnly = Boolean.parseBoolean(req.queryParams("open"));
+            ListGamesRequest request = new ListGamesRequest(authToken, afterGameID, limit, openOnly, req.queryParams("player"));
             ListGamesResult result = gameService.listGames(request);
             res.status(200);
             return gson.toJson(result);
@@ -159,6 +178,43 @@ public class Handler {
         }
     }
 
+    public Object exportPgn(Request req, Response res) {
+        // nothing reaches the client until the buffer first fills, so errors before then still get a status
+        res.status(200);
+        res.type("application/x-chess-pgn");
+        try {
+            String authToken = req.headers("authorization");
+            int gameID;
+            try {
+                gameID = Integer.parseInt(req.queryParamOrDefault("gameID", "0"));
+            } catch (NumberFormatException e) {
+                res.status(400);
+                res.type("application/json");
+                return gson.toJson(new ErrorResponse("Error: bad request"));
+            }
+            Writer out = new BufferedWriter(new OutputStreamWriter(res.raw().getOutputStream(), StandardCharsets.UTF_8));
+            gameService.exportPgn(new ExportPgnRequest(authToken, gameID), out);
+            out.flush();
+            return "";
+        } catch (Exception e) {
+            if (res.raw().isCommitted()) {
+                // part of the export has already gone out, so all that is left is to stop
+                System.err.println("PGN export failed: " + e.getMessage());
+                return "";
+            }
+            res.raw().resetBuffer();
+            res.type("application/json");
+            if (e instanceof DataAccessException || e instanceof IllegalArgumentException) {
+                res.status(500);
+            } else if ("unauthorized".equals(e.getMessage())) {
+                res.status(401);
+            } else {
+                res.status(400);
+            }
+            return gson.toJson(new ErrorResponse("Error: " + e.getMessage()));
+        }
+    }
+
     public Object clear(Request req, Response res) {
         try {
             ClearRequest request = new ClearRequest();
@@ -1,19 +1,28 @@
 package server;
 
+import com.google.gson.Gson;
+import dataaccess.CachingDataAccess;
+import dataaccess.DataAccessException;
+import dataaccess.DatabaseManager;
 import dataaccess.SqlDataAccess;
 import handler.Handler;
+import service.results.MetricsResult;
 import spark.*;
+import java.util.Map;
 import websocket.WebSocketHandler;
 
 public class Server {
     private final Handler handler;
+    private final WebSocketHandler webSocketHandler;
+    private final Gson gson = new Gson();
 
     public Server(){
         try {
-            this.handler = new Handler(new SqlDataAccess());
-        } catch (dataaccess.DataAccessException e) {
+            this.handler = new Handler(new CachingDataAccess(new SqlDataAccess()));
+        } catch (DataAccessException e) {
             throw new RuntimeException(e);
         }
+        this.webSocketHandler = new WebSocketHandler(handler.getDataAccess());
     }
 
     public int run(int desiredPort) {
@@ -22,7 +31,7 @@ public class Server {
         Spark.staticFiles.location("web");
 
         // Register WebSocket BEFORE HTTP routes
-        Spark.webSocket("/ws", new WebSocketHandler(handler.getDataAccess()));
+        Spark.webSocket("/ws", webSocketHandler);
 
         // Register your endpoints and handle exceptions here.
         Spark.delete("/db", handler::clear);
@@ -32,6 +41,8 @@ public class Server {
         Spark.get("/game", handler::listGames);
         Spark.post("/game", handler::createGame);
         Spark.put("/game", handler::joinGame);
+        Spark.get("/game/pgn", handler::exportPgn);
+        Spark.get("/metrics", this::metrics);
         //This line initializes the server and can be removed once you have a functioning endpoint 
         Spark.exception(Exception.class, (e, req, res) -> {
             res.status(500);
@@ -42,8 +53,34 @@ public class Server {
         return Spark.port();
     }
 
+    /**
+     * Reports the WebSocket send queues and the statement cache, for
+     * watching a running server. Like the other routes, it needs a logged in user
+     */
+    private Object metrics(Request req, Response res) {
+        try {
+            if (handler.getDataAccess().getAuth(req.headers("authorization")) == null) {
+                res.status(401);
+                return "{\"message\":\"Error: unauthorized\"}";
+            }
+        } catch (DataAccessException e) {
+            res.status(500);
+            return gson.toJson(Map.of("message", "Error: " + e.getMessage()));
+        }
+        res.status(200);
+        return gson.toJson(new MetricsResult(webSocketHandler.getQueuedMessages(),
+                webSocketHandler.getMaxQueueDepth(), webSocketHandler.getSlowSessionsDisconnected(),
+                DatabaseManager.getStatementCacheHits(), DatabaseManager.getStatementCacheMisses()));
+    }
+
     public void stop() {
         Spark.stop();
         Spark.awaitStop();
+        try {
+            handler.getDataAccess().flush();
+        } catch (DataAccessException e) {
+            System.err.println("Failed to save games on shutdown: " + e.getMessage());
+        }
+        DatabaseManager.closeConnectionPool();
     }
 }
@@ -1,13 +1,17 @@
 package service;
 
 import chess.ChessGame;
+import chess.PgnWriter;
 import dataaccess.DataAccess;
 import model.AuthData;
 import model.GameData;
+import model.GameSummary;
 import service.requests.*;
 import service.results.*;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 public class GameService {
@@ -22,7 +26,8 @@ public class GameService {
         if (auth == null) {
             throw new Exception("unauthorized");
         }
-        List<GameData> games = dataAccess.listGames();
+        List<GameSummary> games = dataAccess.listGameSummaries(
+                request.afterGameID(), request.limit(), request.openOnly(), request.player());
         List<ListGamesResult.GameEntry> gameEntries = games.stream()
                 .map(game -> new ListGamesResult.GameEntry(
                         game.gameID(),
@@ -30,7 +35,12 @@ public class GameService {
                         game.blackUser(),
                         game.gameName()))
                 .collect(Collectors.toList());
-        return new ListGamesResult(gameEntries);
+        // a full page means there may be more after it
+        Integer nextAfter = null;
+        if (request.limit() > 0 && games.size() == request.limit()) {
+            nextAfter = games.get(games.size() - 1).gameID();
+        }
+        return new ListGamesResult(gameEntries, nextAfter);
     }
 
     public CreateGameResult createGame(CreateGameRequest request) throws Exception {
@@ -39,21 +49,7 @@ public class GameService {
             throw new Exception("unauthorized");
         }
         GameData game = new GameData(0, null, null, request.gameName(), new ChessGame());
-        dataAccess.createGame(game);
-
-        List<GameData> games = dataAccess.listGames();
-        int maxId = -1;
-        GameData createdGame = null;
-        for (GameData g : games) {
-            if (g.gameID() > maxId) {
-                maxId = g.gameID();
-                createdGame = g;
-            }
-        }
-        if (createdGame == null) {
-            throw new Exception("Game creation failed");
-        }
-        int gameID = createdGame.gameID();
+        int gameID = dataAccess.createGame(game);
         return new CreateGameResult(gameID);
     }
 
@@ -87,4 +83,34 @@ public class GameService {
         dataAccess.updateGame(updatedGame);
         return new JoinGameResult();
     }
+
+    /**
+     * Writes games as PGN as they are read, so any number of games can be
+     * exported without holding them all in memory
+     *
+     * @param out where to write the PGN
+     */
+    public ExportPgnResult exportPgn(ExportPgnRequest request, Appendable out) throws Exception {
+        AuthData auth = dataAccess.getAuth(request.authToken());
+        if (auth == null) {
+            throw new Exception("unauthorized");
+        }
+        PgnWriter writer = new PgnWriter(out);
+        int[] exported = {0};
+        dataAccess.exportGames(request.gameID(), (game, start, moves, resigned) -> {
+            Map<String, String> tags = new LinkedHashMap<>();
+            tags.put("Event", game.gameName() != null ? game.gameName() : "?");
+            tags.put("Site", "?");
+            tags.put("Date", "????.??.??");
+            tags.put("Round", "-");
+            tags.put("White", game.whiteUser() != null ? game.whiteUser() : "?");
+            tags.put("Black", game.blackUser() != null ? game.blackUser() : "?");
+            writer.writeGame(tags, start, moves, resigned);
+            exported[0]++;
+        });
+        if (request.gameID() != 0 && exported[0] == 0) {
+            throw new Exception("bad request");
+        }
+        return new ExportPgnResult(exported[0]);
+    }
 }
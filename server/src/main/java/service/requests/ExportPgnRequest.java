@@ -0,0 +1,7 @@
+package service.requests;
+
+/**
+ * @param gameID the one game to export, or 0 for every game
+ */
+public record ExportPgnRequest(String authToken, int gameID) {
+}
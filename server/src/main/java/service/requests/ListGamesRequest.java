@@ -1,4 +1,13 @@
 package service.requests;
 
-public record ListGamesRequest(String authToken) {
+/**
+ * @param afterGameID only list games with a higher ID, for paging through the list
+ * @param limit       most games to return, or 0 for all of them
+ * @param openOnly    only list games with an empty seat
+ * @param player      only list games this user is playing in, or null for any
+ */
+public record ListGamesRequest(String authToken, int afterGameID, int limit, boolean openOnly, String player) {
+    public ListGamesRequest(String authToken) {
+        this(authToken, 0, 0, false, null);
+    }
 }
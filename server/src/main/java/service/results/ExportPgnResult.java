@@ -0,0 +1,4 @@
+package service.results;
+
+public record ExportPgnResult(int games) {
+}
@@ -1,6 +1,14 @@
 package service.results;
 
 import java.util.List;
-public record ListGamesResult(List<GameEntry> games) {
+
+/**
+ * @param nextAfter the afterGameID to ask for the next page with, or null if this is the last page
+ */
+public record ListGamesResult(List<GameEntry> games, Integer nextAfter) {
+    public ListGamesResult(List<GameEntry> games) {
+        this(games, null);
+    }
+
     public record GameEntry(int gameID, String whiteUsername, String blackUsername, String gameName) {}
 }
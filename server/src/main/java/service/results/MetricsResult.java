@@ -0,0 +1,5 @@
+package service.results;
+
+public record MetricsResult(int queuedMessages, int maxQueueDepth, long slowSessionsDisconnected,
+                            long statementCacheHits, long statementCacheMisses) {
+}
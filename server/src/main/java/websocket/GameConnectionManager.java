@@ -1,47 +1,103 @@
 package websocket;
 
 import org.eclipse.jetty.websocket.api.Session;
+import chess.ChessGame;
+import chess.ChessMove;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.MoveMessage;
 import websocket.messages.ServerMessage;
 import com.google.gson.Gson;
 
-import java.io.IOException;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class GameConnectionManager {
     private final Map<Session, String> connections = new ConcurrentHashMap<>();
+    // sessions that get a MOVE message after each move instead of a LOAD_GAME
+    private final Set<Session> moveUpdates = ConcurrentHashMap.newKeySet();
     private final Gson gson = new Gson();
+    private final SessionSender sender;
+    private volatile EncodedGame loadGame;
 
-    public void addConnection(Session session, String username) {
-        connections.put(session, username);
+    public GameConnectionManager(SessionSender sender) {
+        this.sender = sender;
     }
 
-    public void removeConnection(Session session) {
-        connections.remove(session);
+    /**
+     * @return true if the session was not already connected to this game
+     */
+    public boolean addConnection(Session session, String username, boolean wantsMoveUpdates) {
+        if (wantsMoveUpdates) {
+            moveUpdates.add(session);
+        } else {
+            moveUpdates.remove(session);
+        }
+        return connections.put(session, username) == null;
     }
 
-    public void broadcastToAll(ServerMessage message) {
-        String jsonMessage = gson.toJson(message);
-        connections.keySet().forEach(session -> {
-            try {
-                if (session.isOpen()) {
-                    session.getRemote().sendString(jsonMessage);
+    public boolean isEmpty() {
+        return connections.isEmpty();
+    }
+
+    /**
+     * @return true if the session was connected to this game
+     */
+    public boolean removeConnection(Session session) {
+        moveUpdates.remove(session);
+        return connections.remove(session) != null;
+    }
+
+    /**
+     * Returns the game's LOAD_GAME message as JSON. It is encoded once per
+     * position and reused for every broadcast and connect until the next move
+     * or the end of the game. Call this holding the game's lock.
+     */
+    public String loadGameJson(ChessGame game) {
+        EncodedGame cached = loadGame;
+        if (cached == null || cached.game() != game || cached.ply() != game.getPly()
+                || cached.gameOver() != game.isGameOver()) {
+            cached = new EncodedGame(game, game.getPly(), game.isGameOver(), gson.toJson(new LoadGameMessage(game)));
+            loadGame = cached;
+        }
+        return cached.json();
+    }
+
+    public void sendLoadGame(Session session, ChessGame game) {
+        sender.send(session, loadGameJson(game));
+    }
+
+    /**
+     * Tells everyone about a move that was just made: a MOVE message for the
+     * sessions that asked for them, the whole game for everyone else. Call
+     * this holding the game's lock.
+     */
+    public void broadcastMove(ChessGame game, ChessMove move) {
+        String moveJson = null;
+        for (Session session : connections.keySet()) {
+            if (moveUpdates.contains(session)) {
+                if (moveJson == null) {
+                    moveJson = gson.toJson(new MoveMessage(move, game.getPly(), game.getStatus()));
                 }
-            } catch (IOException e) {
-                // Handle error
+                sender.send(session, moveJson);
+            } else {
+                sender.send(session, loadGameJson(game));
             }
-        });
+        }
+    }
+
+    public void broadcastToAll(ServerMessage message) {
+        String jsonMessage = gson.toJson(message);
+        connections.keySet().forEach(session -> sender.send(session, jsonMessage));
     }
+
     public void broadcastToOthers(Session excludeSession, ServerMessage message) {
         String jsonMessage = gson.toJson(message);
         connections.keySet().stream()
-                .filter(session -> session != excludeSession && session.isOpen())
-                .forEach(session -> {
-                    try {
-                        session.getRemote().sendString(jsonMessage);
-                    } catch (IOException e) {
-                        // Handle error
-                    }
-                });
-    }
-}
\ No newline at end of file
+                .filter(session -> session != excludeSession)
+                .forEach(session -> sender.send(session, jsonMessage));
+    }
+
+    private record EncodedGame(ChessGame game, int ply, boolean gameOver, String json) {
+    }
+}
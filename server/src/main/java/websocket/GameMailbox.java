@@ -0,0 +1,74 @@
+package websocket;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Runs one game's commands one at a time, in the order they arrived, on a
+ * shared executor. A game's state is only touched from inside its mailbox,
+ * so commands for the same game never race, while different games run in
+ * parallel.
+ * <p>
+ * A mailbox retires itself once it has nothing left to run, and
+ * {@link #execute} on a retired mailbox returns false. The owner then
+ * creates a new mailbox for the game; since a mailbox only retires when
+ * empty, the old and new mailboxes never run at the same time.
+ */
+class GameMailbox {
+    private final Executor executor;
+    private final Consumer<GameMailbox> onRetire;
+    private final Deque<Runnable> tasks = new ArrayDeque<>();
+    private boolean running;
+    private boolean retired;
+
+    /**
+     * @param executor runs the mailbox's tasks
+     * @param onRetire called once the mailbox has retired, to forget about it
+     */
+    GameMailbox(Executor executor, Consumer<GameMailbox> onRetire) {
+        this.executor = executor;
+        this.onRetire = onRetire;
+    }
+
+    /**
+     * Queues a task to run after the ones already queued
+     *
+     * @return false if the mailbox has retired and the task was not queued
+     */
+    boolean execute(Runnable task) {
+        synchronized (this) {
+            if (retired) {
+                return false;
+            }
+            tasks.addLast(task);
+            if (running) {
+                return true;
+            }
+            running = true;
+        }
+        executor.execute(this::drain);
+        return true;
+    }
+
+    private void drain() {
+        while (true) {
+            Runnable task;
+            synchronized (this) {
+                task = tasks.pollFirst();
+                if (task == null) {
+                    running = false;
+                    retired = true;
+                    break;
+                }
+            }
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                System.err.println("Game command failed: " + e);
+            }
+        }
+        onRetire.accept(this);
+    }
+}
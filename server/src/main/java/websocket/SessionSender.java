@@ -0,0 +1,171 @@
+package websocket;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends messages to WebSocket sessions without blocking the caller. Each
+ * session has its own outbound queue with one asynchronous write in flight at
+ * a time, so messages arrive in the order they were sent and a slow session
+ * only delays itself.
+ * <p>
+ * A session whose queue grows past the limit has fallen too far behind to
+ * catch up; its queue is dropped and the session is disconnected. Every
+ * message to a session must go through here, since Jetty does not allow a
+ * blocking send while an asynchronous one is pending.
+ */
+class SessionSender {
+    static final int DEFAULT_MAX_QUEUED = 256;
+
+    private final Map<Session, Outbox> outboxes = new ConcurrentHashMap<>();
+    private final int maxQueued;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger maxDepth = new AtomicInteger();
+    private final LongAdder disconnected = new LongAdder();
+
+    SessionSender() {
+        this(DEFAULT_MAX_QUEUED);
+    }
+
+    /**
+     * @param maxQueued how many messages may wait for one session before it is disconnected
+     */
+    SessionSender(int maxQueued) {
+        this.maxQueued = maxQueued;
+    }
+
+    /**
+     * Queues a message for the session, doing nothing if it has closed
+     */
+    void send(Session session, String message) {
+        if (!session.isOpen()) {
+            return;
+        }
+        outboxes.computeIfAbsent(session, Outbox::new).enqueue(message);
+    }
+
+    /**
+     * Drops anything still queued for a session that has closed
+     */
+    void forget(Session session) {
+        Outbox outbox = outboxes.remove(session);
+        if (outbox != null) {
+            outbox.discard();
+        }
+    }
+
+    /**
+     * @return messages currently waiting to be sent, across all sessions
+     */
+    int getQueuedMessages() {
+        return queued.get();
+    }
+
+    /**
+     * @return the deepest any one session's queue has been
+     */
+    int getMaxQueueDepth() {
+        return maxDepth.get();
+    }
+
+    /**
+     * @return sessions disconnected for falling too far behind
+     */
+    long getSlowSessionsDisconnected() {
+        return disconnected.sum();
+    }
+
+    private class Outbox implements WriteCallback {
+        private final Session session;
+        private final Deque<String> pending = new ArrayDeque<>();
+        private boolean sending;
+        private boolean closed;
+
+        Outbox(Session session) {
+            this.session = session;
+        }
+
+        void enqueue(String message) {
+            String next;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                if (pending.size() >= maxQueued) {
+                    discardLocked();
+                    disconnected.increment();
+                    next = null;
+                } else {
+                    pending.addLast(message);
+                    queued.incrementAndGet();
+                    maxDepth.accumulateAndGet(pending.size(), Math::max);
+                    if (sending) {
+                        return;
+                    }
+                    sending = true;
+                    next = takeLocked();
+                }
+            }
+            if (next == null) {
+                outboxes.remove(session, this);
+                session.close(StatusCode.POLICY_VIOLATION, "Too far behind");
+            } else {
+                write(next);
+            }
+        }
+
+        @Override
+        public void writeSuccess() {
+            String next;
+            synchronized (this) {
+                next = closed ? null : takeLocked();
+                if (next == null) {
+                    sending = false;
+                    return;
+                }
+            }
+            write(next);
+        }
+
+        @Override
+        public void writeFailed(Throwable cause) {
+            // the session is going away, and onClose will clean up after it
+            discard();
+            outboxes.remove(session, this);
+        }
+
+        synchronized void discard() {
+            discardLocked();
+        }
+
+        private void discardLocked() {
+            closed = true;
+            queued.addAndGet(-pending.size());
+            pending.clear();
+        }
+
+        private String takeLocked() {
+            String next = pending.pollFirst();
+            if (next != null) {
+                queued.decrementAndGet();
+            }
+            return next;
+        }
+
+        private void write(String message) {
+            try {
+                session.getRemote().sendString(message, this);
+            } catch (RuntimeException e) {
+                writeFailed(e);
+            }
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package websocket;
 
-import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import chess.*;
 import com.google.gson.*;
 import dataaccess.*;
@@ -18,6 +21,12 @@ public class WebSocketHandler {
     private final Map<Integer, GameConnectionManager> gameConnections = new ConcurrentHashMap<>();
     private final Map<Integer, Map<String, ChessGame.TeamColor>> gamePlayers = new ConcurrentHashMap<>();
     private final Map<Integer, Set<String>> gameObservers = new ConcurrentHashMap<>();
+    // the games each session is connected to, so a disconnect only visits those games
+    private final Map<Session, Set<Integer>> sessionGames = new ConcurrentHashMap<>();
+    private final Map<Integer, GameMailbox> mailboxes = new ConcurrentHashMap<>();
+    // commands block on the database, so they run on virtual threads rather than Jetty's
+    private final ExecutorService commandExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final SessionSender sender = new SessionSender();
     private final DataAccess dataAccess;
     private final Gson gson = new Gson();
 
@@ -32,10 +41,88 @@ public class WebSocketHandler {
 
     @OnWebSocketMessage
     public void onMessage(Session session, String message) {
+        UserGameCommand command;
+        ChessMove move = null;
         try {
             // First parse as UserGameCommand
-            UserGameCommand command = gson.fromJson(message, UserGameCommand.class);
+            command = gson.fromJson(message, UserGameCommand.class);
 
+            // If it's a MAKE_MOVE command, parse the move separately
+            if (command.getCommandType() == UserGameCommand.CommandType.MAKE_MOVE) {
+                JsonObject jsonObject = gson.fromJson(message, JsonObject.class);
+                if (jsonObject.has("move")) {
+                    move = gson.fromJson(jsonObject.get("move"), ChessMove.class);
+                }
+            }
+        } catch (Exception e) {
+            sendError(session, "Invalid message format");
+            return;
+        }
+        if (command == null || command.getCommandType() == null || command.getGameID() == null) {
+            sendError(session, "Invalid message format");
+            return;
+        }
+
+        // everything else, the auth lookup included, happens in order in the game's mailbox
+        ChessMove parsedMove = move;
+        dispatch(command.getGameID(), () -> processCommand(session, command, parsedMove));
+    }
+
+    @OnWebSocketClose
+    public void onClose(Session session, int statusCode, String reason) {
+        sender.forget(session);
+        // Remove from the games this session connected to
+        Set<Integer> games = sessionGames.remove(session);
+        if (games == null) {
+            return;
+        }
+        for (int gameID : games) {
+            dispatch(gameID, () -> {
+                GameConnectionManager manager = gameConnections.get(gameID);
+                if (manager != null && manager.removeConnection(session)) {
+                    forgetConnection(session, gameID);
+                }
+            });
+        }
+    }
+
+    /**
+     * Cleans up after a session has been removed from a game's connections:
+     * drops it from the session index, drops the game's connection manager if
+     * nobody is left, and releases the session's pin on the game. Only call
+     * this from the game's mailbox.
+     */
+    private void forgetConnection(Session session, int gameID) {
+        sessionGames.computeIfPresent(session, (s, games) -> {
+            games.remove(gameID);
+            return games.isEmpty() ? null : games;
+        });
+        // connections are only added from this game's mailbox, so an empty manager stays empty
+        gameConnections.computeIfPresent(gameID, (id, manager) -> manager.isEmpty() ? null : manager);
+        try {
+            dataAccess.unpinGame(gameID);
+        } catch (DataAccessException e) {
+            System.err.println("Failed to save game " + gameID + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Queues a task in the game's mailbox, behind any commands for that game
+     * that have not finished yet
+     */
+    private void dispatch(int gameID, Runnable task) {
+        while (true) {
+            GameMailbox mailbox = mailboxes.computeIfAbsent(gameID,
+                    id -> new GameMailbox(commandExecutor, retired -> mailboxes.remove(id, retired)));
+            if (mailbox.execute(task)) {
+                return;
+            }
+            mailboxes.remove(gameID, mailbox); // retired but not yet forgotten
+        }
+    }
+
+    private void processCommand(Session session, UserGameCommand command, ChessMove move) {
+        try {
             // Validate auth token
             UserData user = dataAccess.getUserByAuthToken(command.getAuthToken());
             if (user == null) {
@@ -43,11 +130,8 @@ public class WebSocketHandler {
                 return;
             }
 
-            // If it's a MAKE_MOVE command, parse the move separately
             if (command.getCommandType() == UserGameCommand.CommandType.MAKE_MOVE) {
-                JsonObject jsonObject = gson.fromJson(message, JsonObject.class);
-                if (jsonObject.has("move")) {
-                    ChessMove move = gson.fromJson(jsonObject.get("move"), ChessMove.class);
+                if (move != null) {
                     handleMakeMove(session, command, move, user);
                 } else {
                     sendError(session, "No move provided");
@@ -56,15 +140,7 @@ public class WebSocketHandler {
                 handleCommand(session, command, user);
             }
         } catch (Exception e) {
-            sendError(session, "Invalid message format");
-        }
-    }
-
-    @OnWebSocketClose
-    public void onClose(Session session, int statusCode, String reason) {
-        // Remove from all game connections
-        for (GameConnectionManager manager : gameConnections.values()) {
-            manager.removeConnection(session);
+            sendError(session, "Error processing command: " + e.getMessage());
         }
     }
 
@@ -74,6 +150,7 @@ public class WebSocketHandler {
                 case CONNECT -> handleConnect(session, command, user);
                 case LEAVE -> handleLeave(session, command, user);
                 case RESIGN -> handleResign(session, command, user);
+                case SYNC -> handleSync(session, command);
             }
         } catch (Exception e) {
             sendError(session, "Error processing command: " + e.getMessage());
@@ -82,19 +159,36 @@ public class WebSocketHandler {
 
     private void handleConnect(Session session, UserGameCommand command, UserData user) {
         try {
-            GameData game = dataAccess.getGame(command.getGameID());
+            // keeps the game in memory while anyone is connected to it
+            GameData game = dataAccess.pinGame(command.getGameID());
             if (game == null) {
                 sendError(session, "Game not found");
                 return;
             }
 
             GameConnectionManager manager = gameConnections.computeIfAbsent(
-                    command.getGameID(), k -> new GameConnectionManager());
+                    command.getGameID(), k -> new GameConnectionManager(sender));
 
-            manager.addConnection(session, user.username());
+            if (!manager.addConnection(session, user.username(), command.wantsMoveUpdates())) {
+                dataAccess.unpinGame(command.getGameID()); // reconnecting, already pinned
+            } else {
+                sessionGames.compute(session, (s, games) -> {
+                    Set<Integer> joined = games != null ? games : new HashSet<>();
+                    joined.add(command.getGameID());
+                    return joined;
+                });
+                if (!session.isOpen()) {
+                    // closed while this command was queued, and onClose may have already run
+                    manager.removeConnection(session);
+                    forgetConnection(session, command.getGameID());
+                    return;
+                }
+            }
 
             // Send LOAD_GAME to connecting user
-            sendLoadGame(session, game.game());
+            synchronized (game.game()) {
+                manager.sendLoadGame(session, game.game());
+            }
 
             // Determine if user is a player or observer
             String notificationMsg;
@@ -132,46 +226,59 @@ public class WebSocketHandler {
 
             ChessGame game = gameData.game();
 
-            // CRITICAL: Check if it's the player's turn
-            ChessGame.TeamColor currentTurn = game.getTeamTurn();
-            if ((currentTurn == ChessGame.TeamColor.WHITE && !isWhitePlayer) ||
-                    (currentTurn == ChessGame.TeamColor.BLACK && !isBlackPlayer)) {
-                sendError(session, "Not your turn");
-                return;
-            }
+            // commands run one at a time per game, this lock only keeps the background save from seeing half a move
+            ChessGame.GameStatus status;
+            ChessGame.TeamColor nextTurn;
+            ChessGame afterMove;
+            synchronized (game) {
+                // CRITICAL: Check if it's the player's turn
+                ChessGame.TeamColor currentTurn = game.getTeamTurn();
+                if ((currentTurn == ChessGame.TeamColor.WHITE && !isWhitePlayer) ||
+                        (currentTurn == ChessGame.TeamColor.BLACK && !isBlackPlayer)) {
+                    sendError(session, "Not your turn");
+                    return;
+                }
 
-            // Check if move is valid
-            try {
-                game.makeMove(move);
-            } catch (Exception e) {
-                sendError(session, "Invalid move: " + e.getMessage());
-                return;
+                // Check if move is valid
+                try {
+                    game.makeMove(move);
+                } catch (Exception e) {
+                    sendError(session, "Invalid move: " + e.getMessage());
+                    return;
+                }
+
+                // a copy to save, taken now so the save can happen without holding the lock
+                afterMove = ChessGame.decode(game.encode());
+
+                // Broadcast the move to all players, before another move can change the board
+                GameConnectionManager manager = gameConnections.get(command.getGameID());
+                if (manager != null) {
+                    manager.broadcastMove(game, move);
+                }
+                // makeMove already worked out the status, this reads the cached result
+                status = game.getStatus();
+                nextTurn = game.getTeamTurn();
             }
 
-            // Update game in database
-            GameData updatedGame = new GameData(gameData.gameID(), gameData.whiteUser(),
-                    gameData.blackUser(), gameData.gameName(), game);
-            dataAccess.updateGame(updatedGame);
+            // Record the move, the stored game is brought up to date from the move log
+            dataAccess.appendMoves(gameData.gameID(), afterMove.getPly(), List.of(move), afterMove);
 
-            // Broadcast LOAD_GAME to all players
             GameConnectionManager manager = gameConnections.get(command.getGameID());
             if (manager != null) {
-                manager.broadcastToAll(new LoadGameMessage(game));
-
                 // Send notification to others about the move
                 String moveDescription = user.username() + " moved from " +
                         moveNotation(move.getStartPosition()) + " to " + moveNotation(move.getEndPosition());
                 manager.broadcastToOthers(session, new NotificationMessage(moveDescription));
 
-                if (game.isInCheckmate(game.getTeamTurn())) {
-                    manager.broadcastToAll(new NotificationMessage(
-                            game.getTeamTurn() + " is in checkmate"));
-                } else if (game.isInCheck(game.getTeamTurn())) {
-                    manager.broadcastToAll(new NotificationMessage(
-                            game.getTeamTurn() + " is in check"));
-                } else if (game.isInStalemate(game.getTeamTurn())) {
-                    manager.broadcastToAll(new NotificationMessage(
-                            game.getTeamTurn() + " is in stalemate"));
+                switch (status) {
+                    case CHECKMATE -> manager.broadcastToAll(new NotificationMessage(
+                            nextTurn + " is in checkmate"));
+                    case CHECK -> manager.broadcastToAll(new NotificationMessage(
+                            nextTurn + " is in check"));
+                    case STALEMATE -> manager.broadcastToAll(new NotificationMessage(
+                            nextTurn + " is in stalemate"));
+                    case NORMAL -> {
+                    }
                 }
             }
         } catch (Exception e) {
@@ -179,6 +286,30 @@ public class WebSocketHandler {
         }
     }
 
+    /**
+     * Sends the whole game again, for a client that missed a MOVE message
+     */
+    private void handleSync(Session session, UserGameCommand command) {
+        try {
+            GameData gameData = dataAccess.getGame(command.getGameID());
+            if (gameData == null) {
+                sendError(session, "Game not found");
+                return;
+            }
+            ChessGame game = gameData.game();
+            GameConnectionManager manager = gameConnections.get(command.getGameID());
+            synchronized (game) {
+                if (manager != null) {
+                    manager.sendLoadGame(session, game);
+                } else {
+                    sender.send(session, gson.toJson(new LoadGameMessage(game)));
+                }
+            }
+        } catch (Exception e) {
+            sendError(session, "Error syncing game: " + e.getMessage());
+        }
+    }
+
     // Add this helper method
     private String moveNotation(ChessPosition pos) {
         char col = (char) ('a' + pos.getColumn() - 1);
@@ -195,7 +326,7 @@ public class WebSocketHandler {
 
             GameConnectionManager manager = gameConnections.get(command.getGameID());
             if (manager != null) {
-                manager.removeConnection(session);
+                boolean wasConnected = manager.removeConnection(session);
 
                 // Remove player from game data if they're a player (not observer)
                 GameData updatedGame = gameData;
@@ -211,6 +342,9 @@ public class WebSocketHandler {
                 if (!updatedGame.equals(gameData)) {
                     dataAccess.updateGame(updatedGame);
                 }
+                if (wasConnected) {
+                    forgetConnection(session, command.getGameID());
+                }
 
                 // Send notification to others
                 manager.broadcastToAll(new NotificationMessage(user.username() + " left the game"));
@@ -238,16 +372,24 @@ public class WebSocketHandler {
             }
 
             ChessGame game = gameData.game();
-            if (game.isGameOver()) {
-                sendError(session, "Game is already over");
-                return;
-            }
+            GameData updatedGame;
+            synchronized (game) {
+                if (game.isGameOver()) {
+                    sendError(session, "Game is already over");
+                    return;
+                }
 
-            // Mark game as over
-            game.setGameOver(true);
+                // Mark game as over, recording who resigned. Someone playing both sides resigns the side to move.
+                boolean resignsWhite = user.username().equals(gameData.whiteUser())
+                        && (!user.username().equals(gameData.blackUser())
+                        || game.getTeamTurn() == ChessGame.TeamColor.WHITE);
+                game.resign(resignsWhite ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK);
+
+                updatedGame = new GameData(gameData.gameID(), gameData.whiteUser(),
+                        gameData.blackUser(), gameData.gameName(), game);
+            }
 
-            GameData updatedGame = new GameData(gameData.gameID(), gameData.whiteUser(),
-                    gameData.blackUser(), gameData.gameName(), game);
+            // saved outside the lock, commands for this game run one at a time so nothing else changes it meanwhile
             dataAccess.updateGame(updatedGame);
 
             // Broadcast resignation notification to ALL players (including resignee)
@@ -259,19 +401,28 @@ public class WebSocketHandler {
             sendError(session, "Error resigning: " + e.getMessage());
         }
     }
-    private void sendLoadGame(Session session, ChessGame game) {
-        try {
-            session.getRemote().sendString(gson.toJson(new LoadGameMessage(game)));
-        } catch (IOException e) {
-            // Handle error
-        }
+    private void sendError(Session session, String errorMessage) {
+        sender.send(session, gson.toJson(new ErrorMessage(errorMessage)));
     }
 
-    private void sendError(Session session, String errorMessage) {
-        try {
-            session.getRemote().sendString(gson.toJson(new ErrorMessage(errorMessage)));
-        } catch (IOException e) {
-            // Handle error
-        }
+    /**
+     * @return messages waiting to go out to WebSocket clients
+     */
+    public int getQueuedMessages() {
+        return sender.getQueuedMessages();
+    }
+
+    /**
+     * @return the deepest any one client's outbound queue has been
+     */
+    public int getMaxQueueDepth() {
+        return sender.getMaxQueueDepth();
+    }
+
+    /**
+     * @return clients disconnected for falling too far behind
+     */
+    public long getSlowSessionsDisconnected() {
+        return sender.getSlowSessionsDisconnected();
     }
 }
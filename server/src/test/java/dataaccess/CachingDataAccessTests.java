@@ -0,0 +1,293 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import model.AuthData;
+import model.GameData;
+import model.UserData;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class CachingDataAccessTests {
+    private CountingDataAccess backing;
+    private CachingDataAccess dao;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        backing = new CountingDataAccess();
+        dao = new CachingDataAccess(backing, 60_000, 100);
+        dao.createUser(new UserData("alice", "password123", "alice@example.com"));
+        backing.createAuth(new AuthData("token1", "alice"));
+    }
+
+    @Test
+    void repeatedLookupsHitTheCache() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            assertEquals("alice", dao.getAuth("token1").username());
+            assertEquals("alice", dao.getUserByAuthToken("token1").username());
+        }
+        assertEquals(1, backing.authLookups);
+        assertEquals(1, backing.userLookups);
+    }
+
+    @Test
+    void unknownTokensAreNotCached() throws Exception {
+        assertNull(dao.getAuth("token2"));
+        backing.createAuth(new AuthData("token2", "alice"));
+        assertNotNull(dao.getAuth("token2"));
+    }
+
+    @Test
+    void deleteAuthInvalidates() throws Exception {
+        assertNotNull(dao.getUserByAuthToken("token1"));
+        dao.deleteAuth("token1");
+        assertNull(dao.getAuth("token1"));
+        assertNull(dao.getUserByAuthToken("token1"));
+    }
+
+    @Test
+    void clearAuthInvalidates() throws Exception {
+        assertNotNull(dao.getAuth("token1"));
+        dao.clearAuth();
+        assertNull(dao.getAuth("token1"));
+    }
+
+    @Test
+    void expiredEntriesAreReadAgain() throws Exception {
+        dao = new CachingDataAccess(backing, 0, 100);
+        dao.getAuth("token1");
+        dao.getAuth("token1");
+        assertEquals(2, backing.authLookups);
+    }
+
+    @Test
+    void cacheStaysBounded() throws Exception {
+        dao = new CachingDataAccess(backing, 60_000, 10);
+        for (int i = 0; i < 50; i++) {
+            dao.createAuth(new AuthData("bulk" + i, "alice"));
+            assertTrue(dao.cachedTokenCount() <= 10);
+        }
+        assertEquals(10, dao.cachedTokenCount());
+        for (int i = 0; i < 50; i++) {
+            assertEquals("alice", dao.getAuth("bulk" + i).username());
+            assertTrue(dao.cachedTokenCount() <= 10);
+        }
+        int lookups = backing.authLookups;
+        assertTrue(lookups > 0);
+
+        // the most recently used tokens are the ones kept
+        for (int i = 40; i < 50; i++) {
+            dao.getAuth("bulk" + i);
+        }
+        assertEquals(lookups, backing.authLookups);
+    }
+
+    @Test
+    void pinnedGameUpdatesAreWrittenOnUnpin() throws Exception {
+        int gameID = dao.createGame(new GameData(0, "alice", "bob", "Live", new ChessGame()));
+        GameData game = dao.pinGame(gameID);
+        game.game().makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        dao.updateGame(game);
+        game.game().makeMove(new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null));
+        dao.updateGame(game);
+        assertSame(game, dao.getGame(gameID));
+        assertEquals(0, backing.gameUpdates);
+
+        dao.unpinGame(gameID);
+        assertEquals(1, backing.gameUpdates);
+        assertEquals(ChessGame.TeamColor.WHITE, backing.getGame(gameID).game().getTeamTurn());
+    }
+
+    @Test
+    void pinnedGameStaysUntilLastUnpin() throws Exception {
+        int gameID = dao.createGame(new GameData(0, "alice", "bob", "Live", new ChessGame()));
+        GameData game = dao.pinGame(gameID);
+        dao.pinGame(gameID);
+        dao.updateGame(game);
+        dao.unpinGame(gameID);
+        assertEquals(0, backing.gameUpdates);
+        dao.flush();
+        assertEquals(1, backing.gameUpdates);
+        dao.unpinGame(gameID);
+        assertEquals(1, backing.gameUpdates);
+    }
+
+    @Test
+    void pinnedGamePlayerChangesAreWrittenThrough() throws Exception {
+        int gameID = dao.createGame(new GameData(0, "alice", "bob", "Live", new ChessGame()));
+        GameData game = dao.pinGame(gameID);
+        dao.updateGame(new GameData(gameID, "alice", null, game.gameName(), game.game()));
+        assertEquals(1, backing.gameUpdates);
+        assertNull(backing.getGame(gameID).blackUser());
+        dao.unpinGame(gameID);
+        assertEquals(1, backing.gameUpdates);
+    }
+
+    @Test
+    void pinnedGameMovesAreRecordedTogether() throws Exception {
+        int gameID = dao.createGame(new GameData(0, "alice", "bob", "Live", new ChessGame()));
+        ChessGame game = dao.pinGame(gameID).game();
+        ChessMove first = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        ChessMove second = new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null);
+        game.makeMove(first);
+        dao.appendMoves(gameID, game.getPly(), List.of(first), game);
+        game.makeMove(second);
+        dao.appendMoves(gameID, game.getPly(), List.of(second), game);
+        assertEquals(List.of(first, second), dao.getMoves(gameID));
+        assertEquals(0, backing.moveBatches);
+
+        dao.unpinGame(gameID);
+        assertEquals(1, backing.moveBatches);
+        assertEquals(0, backing.gameUpdates);
+        assertEquals(List.of(first, second), backing.getMoves(gameID));
+    }
+
+    @Test
+    void pinnedGameIsSavedWithoutHoldingItsLock() throws Exception {
+        int gameID = dao.createGame(new GameData(0, "alice", "bob", "Live", new ChessGame()));
+        GameData game = dao.pinGame(gameID);
+        backing.watched = game.game();
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        synchronized (game.game()) {
+            game.game().makeMove(move);
+        }
+        dao.appendMoves(gameID, game.game().getPly(), List.of(move), game.game());
+        dao.updateGame(game);
+
+        dao.unpinGame(gameID);
+        assertEquals(1, backing.moveBatches);
+        assertEquals(1, backing.gameUpdates);
+        assertFalse(backing.savedHoldingLock);
+    }
+
+    @Test
+    void concurrentPinsShareOneLoad() throws Exception {
+        int gameID = dao.createGame(new GameData(0, "alice", "bob", "Live", new ChessGame()));
+        backing.loadGate = new CountDownLatch(1);
+        CompletableFuture<GameData> first = CompletableFuture.supplyAsync(() -> pin(gameID));
+        while (backing.gameLookups == 0) {
+            Thread.onSpinWait();
+        }
+        CompletableFuture<GameData> second = CompletableFuture.supplyAsync(() -> pin(gameID));
+        Thread.sleep(50);
+        assertFalse(second.isDone());
+
+        backing.loadGate.countDown();
+        GameData game = first.get(5, TimeUnit.SECONDS);
+        assertSame(game, second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, backing.gameLookups);
+        dao.unpinGame(gameID);
+        dao.unpinGame(gameID);
+    }
+
+    private GameData pin(int gameID) {
+        try {
+            return dao.pinGame(gameID);
+        } catch (DataAccessException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    @Test
+    void clearingGamesCancelsPendingSaves() throws Exception {
+        int gameID = dao.createGame(new GameData(0, "alice", "bob", "Live", new ChessGame()));
+        GameData game = dao.pinGame(gameID);
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        game.game().makeMove(move);
+        dao.appendMoves(gameID, 1, List.of(move), game.game());
+        dao.updateGame(game);
+
+        dao.clearGames();
+        Thread.sleep(1_500); // past the write-behind delay
+        dao.unpinGame(gameID);
+        assertEquals(0, backing.moveBatches);
+        assertEquals(0, backing.gameUpdates);
+    }
+
+    @Test
+    void movesTheDatabaseRefusesAreNotRetried() throws Exception {
+        int gameID = dao.createGame(new GameData(0, "alice", "bob", "Live", new ChessGame()));
+        GameData game = dao.pinGame(gameID);
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        game.game().makeMove(move);
+        dao.appendMoves(gameID, 1, List.of(move), game.game());
+
+        backing.refuseMoves = true;
+        assertThrows(DataAccessException.class, () -> dao.flush());
+        dao.flush();
+        dao.unpinGame(gameID);
+        assertEquals(1, backing.moveBatches);
+        assertTrue(dao.getMoves(gameID).isEmpty());
+    }
+
+    @Test
+    void pinningMissingGameReturnsNull() throws Exception {
+        assertNull(dao.pinGame(12345));
+    }
+
+    private static class CountingDataAccess extends DataAccessMemory {
+        private int authLookups;
+        private int userLookups;
+        private int gameUpdates;
+        private int moveBatches;
+        private volatile int gameLookups;
+        private volatile CountDownLatch loadGate;
+        private Object watched;
+        private boolean savedHoldingLock;
+        private boolean refuseMoves;
+
+        @Override
+        public GameData getGame(int gameID) throws DataAccessException {
+            gameLookups++;
+            if (loadGate != null) {
+                try {
+                    loadGate.await();
+                } catch (InterruptedException ex) {
+                    throw new DataAccessException("interrupted", ex);
+                }
+            }
+            return super.getGame(gameID);
+        }
+
+        @Override
+        public void appendMoves(int gameID, int firstPly, List<ChessMove> moves, ChessGame game)
+                throws DataAccessException {
+            moveBatches++;
+            savedHoldingLock |= watched != null && Thread.holdsLock(watched);
+            if (refuseMoves) {
+                throw new DataAccessException("failed to record moves",
+                        new SQLIntegrityConstraintViolationException("Duplicate entry", "23000"));
+            }
+            super.appendMoves(gameID, firstPly, moves, game);
+        }
+
+        @Override
+        public void updateGame(GameData game) throws DataAccessException {
+            gameUpdates++;
+            savedHoldingLock |= watched != null && Thread.holdsLock(watched);
+            // store a copy, like a database would, so later in-memory moves do not leak through
+            ChessGame copy = new ChessGame();
+            copy.setBoard(game.game().getBoard().copyBoard());
+            copy.setTeamTurn(game.game().getTeamTurn());
+            super.updateGame(new GameData(game.gameID(), game.whiteUser(), game.blackUser(), game.gameName(), copy));
+        }
+
+        @Override
+        public AuthData getAuth(String authToken) throws DataAccessException {
+            authLookups++;
+            return super.getAuth(authToken);
+        }
+
+        @Override
+        public UserData getUserByAuthToken(String authToken) throws DataAccessException {
+            userLookups++;
+            return super.getUserByAuthToken(authToken);
+        }
+    }
+}
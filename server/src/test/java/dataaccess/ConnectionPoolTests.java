@@ -0,0 +1,111 @@
+package dataaccess;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class ConnectionPoolTests {
+    private ConnectionPool pool;
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Test
+    void returnedConnectionIsReused() throws Exception {
+        pool = DatabaseManager.createConnectionPool(1, 1_000, 8);
+        long first;
+        try (Connection conn = pool.borrow()) {
+            first = connectionId(conn);
+        }
+        try (Connection conn = pool.borrow()) {
+            assertEquals(first, connectionId(conn));
+        }
+    }
+
+    @Test
+    void closingTwiceReturnsTheConnectionOnce() throws Exception {
+        pool = DatabaseManager.createConnectionPool(1, 200, 8);
+        Connection conn = pool.borrow();
+        conn.close();
+        conn.close();
+        assertTrue(conn.isClosed());
+        try (Connection held = pool.borrow()) {
+            // a second release would have let this borrow through as well
+            assertThrows(SQLException.class, () -> pool.borrow());
+        }
+    }
+
+    @Test
+    void closedHandleCannotBeUsed() throws Exception {
+        pool = DatabaseManager.createConnectionPool(1, 1_000, 8);
+        Connection conn = pool.borrow();
+        conn.close();
+        assertThrows(SQLException.class, conn::createStatement);
+        assertThrows(SQLException.class, () -> conn.prepareStatement("SELECT 1"));
+    }
+
+    @Test
+    void borrowTimesOutWhenExhausted() throws Exception {
+        pool = DatabaseManager.createConnectionPool(2, 200, 8);
+        try (Connection first = pool.borrow(); Connection second = pool.borrow()) {
+            long start = System.nanoTime();
+            SQLException ex = assertThrows(SQLException.class, () -> pool.borrow());
+            assertTrue(ex.getMessage().contains("timed out"));
+            assertTrue(System.nanoTime() - start >= 200_000_000L);
+        }
+        pool.borrow().close();
+    }
+
+    @Test
+    void preparedStatementsAreCachedPerConnection() throws Exception {
+        pool = DatabaseManager.createConnectionPool(1, 1_000, 8);
+        for (int i = 0; i < 3; i++) {
+            try (Connection conn = pool.borrow()) {
+                connectionId(conn);
+            }
+        }
+        assertEquals(1, pool.getStatementCacheMisses());
+        assertEquals(2, pool.getStatementCacheHits());
+    }
+
+    @Test
+    void cachedStatementIsResetWhenClosed() throws Exception {
+        pool = DatabaseManager.createConnectionPool(1, 1_000, 8);
+        ResultSet leftOpen;
+        try (Connection conn = pool.borrow()) {
+            PreparedStatement statement = conn.prepareStatement("SELECT ?");
+            statement.setFetchSize(5);
+            statement.setMaxRows(1);
+            statement.setQueryTimeout(3);
+            statement.setInt(1, 7);
+            leftOpen = statement.executeQuery();
+            statement.close();
+        }
+        assertTrue(leftOpen.isClosed());
+
+        try (Connection conn = pool.borrow();
+             PreparedStatement statement = conn.prepareStatement("SELECT ?")) {
+            assertEquals(1, pool.getStatementCacheHits());
+            assertEquals(0, statement.getFetchSize());
+            assertEquals(0, statement.getMaxRows());
+            assertEquals(0, statement.getQueryTimeout());
+            assertThrows(SQLException.class, statement::executeQuery);
+        }
+    }
+
+    private static long connectionId(Connection conn) throws SQLException {
+        try (var statement = conn.prepareStatement("SELECT CONNECTION_ID()");
+             var rs = statement.executeQuery()) {
+            assertTrue(rs.next());
+            return rs.getLong(1);
+        }
+    }
+}
@@ -1,10 +1,16 @@
 package dataaccess;
 
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import com.google.gson.Gson;
 import model.UserData;
 import model.GameData;
+import model.GameSummary;
 import model.AuthData;
 import org.junit.jupiter.api.*;
 import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
 import java.util.List;
 
 public class SqlDataAccessTests {
@@ -72,6 +78,15 @@ public class SqlDataAccessTests {
         assertTrue(found);
     }
 
+    @Test
+    void createGameReturnsNewId() throws Exception {
+        int first = dao.createGame(new GameData(0, null, null, "First", null));
+        int second = dao.createGame(new GameData(0, null, null, "Second", null));
+        assertNotEquals(first, second);
+        assertEquals("First", dao.getGame(first).gameName());
+        assertEquals("Second", dao.getGame(second).gameName());
+    }
+
     @Test
     void getGameSuccess() throws Exception {
         GameData game = new GameData(0, null, null, "Game3", null);
@@ -104,6 +119,185 @@ public class SqlDataAccessTests {
         assertTrue(found4 && found5);
     }
 
+    @Test
+    void listGameSummariesPagesAndFilters() throws Exception {
+        dao.clearGames();
+        int first = dao.createGame(new GameData(0, "alice", null, "Open", null));
+        int second = dao.createGame(new GameData(0, "alice", "bob", "Full", null));
+        int third = dao.createGame(new GameData(0, null, null, "Empty", null));
+
+        List<GameSummary> page = dao.listGameSummaries(0, 2, false, null);
+        assertEquals(List.of(first, second), page.stream().map(GameSummary::gameID).toList());
+        page = dao.listGameSummaries(second, 2, false, null);
+        assertEquals(List.of(third), page.stream().map(GameSummary::gameID).toList());
+
+        assertEquals(List.of(first, third),
+                dao.listGameSummaries(0, 0, true, null).stream().map(GameSummary::gameID).toList());
+        assertEquals(List.of(second),
+                dao.listGameSummaries(0, 0, false, "bob").stream().map(GameSummary::gameID).toList());
+    }
+
+    @Test
+    void recordedMovesReplayOntoSnapshot() throws Exception {
+        ChessGame chessGame = new ChessGame();
+        int gameID = dao.createGame(new GameData(0, null, null, "Moves", chessGame));
+        List<ChessMove> moves = List.of(
+                new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null),
+                new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null),
+                new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null));
+        for (ChessMove move : moves) {
+            chessGame.makeMove(move);
+            dao.appendMoves(gameID, chessGame.getPly(), List.of(move), chessGame);
+        }
+        assertEquals(moves, dao.getMoves(gameID));
+        ChessGame loaded = dao.getGame(gameID).game();
+        assertEquals(chessGame, loaded);
+        assertEquals(3, loaded.getPly());
+    }
+
+    @Test
+    void listGamesReplaysEachGamesOwnMoves() throws Exception {
+        ChessGame first = new ChessGame();
+        ChessGame second = new ChessGame();
+        int firstID = dao.createGame(new GameData(0, null, null, "First", first));
+        int secondID = dao.createGame(new GameData(0, null, null, "Second", second));
+        ChessMove opening = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        first.makeMove(opening);
+        dao.appendMoves(firstID, first.getPly(), List.of(opening), first);
+        ChessMove knight = new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null);
+        second.makeMove(knight);
+        dao.appendMoves(secondID, second.getPly(), List.of(knight), second);
+        List<GameData> games = dao.listGames();
+        assertEquals(2, games.size());
+        assertEquals(first, games.get(0).game());
+        assertEquals(second, games.get(1).game());
+    }
+
+    @Test
+    void exportGamesStreamsEachGameWithItsMoves() throws Exception {
+        ChessGame chessGame = new ChessGame();
+        int played = dao.createGame(new GameData(0, "alice", "bob", "Played", chessGame));
+        int empty = dao.createGame(new GameData(0, null, null, "Empty", new ChessGame()));
+        List<ChessMove> moves = List.of(
+                new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null),
+                new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null));
+        for (ChessMove move : moves) {
+            chessGame.makeMove(move);
+            dao.appendMoves(played, chessGame.getPly(), List.of(move), chessGame);
+        }
+
+        List<String> exported = new ArrayList<>();
+        dao.exportGames(0, (game, start, gameMoves, resigned) -> {
+            assertEquals(new ChessGame(), start);
+            exported.add(game.gameName() + " " + gameMoves.size());
+            if (game.gameID() == played) {
+                assertEquals(moves, gameMoves);
+            }
+        });
+        assertEquals(List.of("Played 2", "Empty 0"), exported);
+
+        exported.clear();
+        dao.exportGames(empty, (game, start, gameMoves, resigned) -> exported.add(game.gameName()));
+        assertEquals(List.of("Empty"), exported);
+    }
+
+    @Test
+    void exportGamesPagesThroughEveryGame() throws Exception {
+        List<Integer> created = new ArrayList<>();
+        for (int i = 0; i < 130; i++) {
+            created.add(dao.createGame(new GameData(0, null, null, "Game" + i, new ChessGame())));
+        }
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        ChessGame last = new ChessGame();
+        last.makeMove(move);
+        dao.appendMoves(created.get(129), 1, List.of(move), last);
+
+        List<Integer> exported = new ArrayList<>();
+        dao.exportGames(0, (game, start, gameMoves, resigned) -> {
+            exported.add(game.gameID());
+            assertEquals(game.gameID() == created.get(129) ? 1 : 0, gameMoves.size());
+        });
+        assertEquals(created, exported);
+    }
+
+    @Test
+    void exportGamesReportsResignations() throws Exception {
+        ChessGame chessGame = new ChessGame();
+        int gameID = dao.createGame(new GameData(0, "alice", "bob", "Resigned", chessGame));
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        chessGame.makeMove(move);
+        dao.appendMoves(gameID, 1, List.of(move), chessGame);
+        chessGame.resign(ChessGame.TeamColor.BLACK);
+        dao.updateGame(new GameData(gameID, "alice", "bob", "Resigned", chessGame));
+
+        List<ChessGame.TeamColor> resignations = new ArrayList<>();
+        dao.exportGames(gameID, (game, start, gameMoves, resigned) -> {
+            assertEquals(List.of(move), gameMoves);
+            resignations.add(resigned);
+        });
+        assertEquals(List.of(ChessGame.TeamColor.BLACK), resignations);
+    }
+
+    @Test
+    void gamesSavedAsJsonStillLoad() throws Exception {
+        ChessGame chessGame = new ChessGame();
+        chessGame.makeMove(new ChessMove(new ChessPosition(2, 4), new ChessPosition(4, 4), null));
+        int gameID = dao.createGame(new GameData(0, null, null, "Old", new ChessGame()));
+        try (var conn = DatabaseManager.getConnection();
+             var preparedStatement = conn.prepareStatement("UPDATE games SET game = ? WHERE gameID = ?")) {
+            preparedStatement.setString(1, new Gson().toJson(chessGame));
+            preparedStatement.setInt(2, gameID);
+            preparedStatement.executeUpdate();
+        }
+        assertEquals(chessGame, dao.getGame(gameID).game());
+    }
+
+    @Test
+    void gamesSavedInTheOriginalFormatStillLoad() throws Exception {
+        String white = "{\"pieceColor\":\"WHITE\",\"type\":\"%s\"}";
+        String black = "{\"pieceColor\":\"BLACK\",\"type\":\"%s\"}";
+        String[] backRank = {"ROOK", "KNIGHT", "BISHOP", "QUEEN", "KING", "BISHOP", "KNIGHT", "ROOK"};
+        List<String> rows = new ArrayList<>();
+        rows.add(row(white, backRank));
+        rows.add(row(white, new String[]{"PAWN", "PAWN", "PAWN", "PAWN", "PAWN", "PAWN", "PAWN", "PAWN"}));
+        for (int i = 0; i < 4; i++) {
+            rows.add("[null,null,null,null,null,null,null,null]");
+        }
+        rows.add(row(black, new String[]{"PAWN", "PAWN", "PAWN", "PAWN", "PAWN", "PAWN", "PAWN", "PAWN"}));
+        rows.add(row(black, backRank));
+        String original = "{\"board\":{\"squares\":[" + String.join(",", rows) + "]},\"turn\":\"WHITE\",\"gameOver\":false}";
+
+        int gameID = dao.createGame(new GameData(0, null, null, "Original", new ChessGame()));
+        storeRawGame(gameID, original);
+        assertEquals(new ChessGame(), dao.getGame(gameID).game());
+        assertEquals(new ChessGame(), dao.listGames().get(0).game());
+    }
+
+    @Test
+    void corruptStoredGameIsADataAccessError() throws Exception {
+        int gameID = dao.createGame(new GameData(0, null, null, "Broken", new ChessGame()));
+        storeRawGame(gameID, "{\"board\":{\"squares\":[1,2,3]}}");
+        assertThrows(DataAccessException.class, () -> dao.getGame(gameID));
+        assertThrows(DataAccessException.class, () -> dao.listGames());
+    }
+
+    private static String row(String format, String[] types) {
+        List<String> pieces = new ArrayList<>();
+        for (String type : types) {
+            pieces.add(String.format(format, type));
+        }
+        return "[" + String.join(",", pieces) + "]";
+    }
+
+    private static void storeRawGame(int gameID, String stored) throws Exception {
+        try (var conn = DatabaseManager.getConnection();
+             var preparedStatement = conn.prepareStatement("UPDATE games SET game = ? WHERE gameID = ?")) {
+            preparedStatement.setString(1, stored);
+            preparedStatement.setInt(2, gameID);
+            preparedStatement.executeUpdate();
+        }
+    }
+
     @Test
     void clearGamesSuccess() throws Exception {
         dao.createGame(new GameData(0, null, null, "Game6", null));
@@ -1,6 +1,8 @@
 package service;
 
 import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
 import dataaccess.DataAccessException;
 import dataaccess.DataAccessMemory;
 import model.AuthData;
@@ -9,6 +11,8 @@ import org.junit.jupiter.api.*;
 import service.requests.*;
 import service.results.*;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class GameServiceTests {
@@ -48,6 +52,23 @@ public class GameServiceTests {
         assertEquals("unauthorized", exception.getMessage());
     }
 
+    @Test
+    @DisplayName("Create Game Returns Stored ID")
+    public void createGameReturnsStoredId() throws Exception {
+        // Arrange
+        String authToken = "valid-token";
+        dataAccess.createAuth(new AuthData(authToken, "testuser"));
+
+        // Act
+        int first = gameService.createGame(new CreateGameRequest(authToken, "First")).gameID();
+        int second = gameService.createGame(new CreateGameRequest(authToken, "Second")).gameID();
+
+        // Assert
+        assertNotEquals(first, second);
+        assertEquals("First", dataAccess.getGame(first).gameName());
+        assertEquals("Second", dataAccess.getGame(second).gameName());
+    }
+
     @Test
     @DisplayName("List Games Success")
     public void listGamesSuccess() throws Exception {
@@ -67,6 +88,34 @@ public class GameServiceTests {
         assertEquals(2, result.games().size());
     }
 
+    @Test
+    @DisplayName("List Games Pages And Filters")
+    public void listGamesPagesAndFilters() throws Exception {
+        // Arrange
+        String authToken = "valid-token";
+        dataAccess.createAuth(new AuthData(authToken, "testuser"));
+        dataAccess.createGame(new GameData(0, "alice", null, "Game 1", new ChessGame()));
+        dataAccess.createGame(new GameData(0, "alice", "bob", "Game 2", new ChessGame()));
+        dataAccess.createGame(new GameData(0, null, null, "Game 3", new ChessGame()));
+
+        // Act
+        ListGamesResult firstPage = gameService.listGames(new ListGamesRequest(authToken, 0, 2, false, null));
+        ListGamesResult lastPage = gameService.listGames(
+                new ListGamesRequest(authToken, firstPage.nextAfter(), 2, false, null));
+        ListGamesResult open = gameService.listGames(new ListGamesRequest(authToken, 0, 0, true, null));
+        ListGamesResult bobs = gameService.listGames(new ListGamesRequest(authToken, 0, 0, false, "bob"));
+
+        // Assert
+        assertEquals(2, firstPage.games().size());
+        assertEquals(2, firstPage.nextAfter());
+        assertEquals(1, lastPage.games().size());
+        assertEquals("Game 3", lastPage.games().get(0).gameName());
+        assertNull(lastPage.nextAfter());
+        assertEquals(2, open.games().size());
+        assertEquals(1, bobs.games().size());
+        assertEquals("Game 2", bobs.games().get(0).gameName());
+    }
+
     @Test
     @DisplayName("List Games Unauthorized")
     public void listGamesUnauthorized() {
@@ -128,4 +177,40 @@ public class GameServiceTests {
         Exception exception = assertThrows(Exception.class, () -> gameService.joinGame(request));
         assertEquals("bad request", exception.getMessage());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Export PGN Success")
+    public void exportPgnSuccess() throws Exception {
+        String authToken = "valid-token";
+        dataAccess.createAuth(new AuthData(authToken, "testuser"));
+        ChessGame game = new ChessGame();
+        int gameID = dataAccess.createGame(new GameData(0, "alice", null, "First", game));
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        game.makeMove(move);
+        dataAccess.appendMoves(gameID, game.getPly(), List.of(move), game);
+        dataAccess.createGame(new GameData(0, null, null, "Second", new ChessGame()));
+
+        StringBuilder out = new StringBuilder();
+        ExportPgnResult result = gameService.exportPgn(new ExportPgnRequest(authToken, 0), out);
+
+        assertEquals(2, result.games());
+        String pgn = out.toString();
+        assertTrue(pgn.contains("[Event \"First\"]\n[Site \"?\"]\n[Date \"????.??.??\"]\n[Round \"-\"]\n"
+                + "[White \"alice\"]\n[Black \"?\"]\n[Result \"*\"]\n\n1. e4 *\n"));
+        assertTrue(pgn.indexOf("[Event \"First\"]") < pgn.indexOf("[Event \"Second\"]"));
+    }
+
+    @Test
+    @DisplayName("Export PGN Missing Game")
+    public void exportPgnMissingGame() throws Exception {
+        String authToken = "valid-token";
+        dataAccess.createAuth(new AuthData(authToken, "testuser"));
+
+        Exception exception = assertThrows(Exception.class,
+                () -> gameService.exportPgn(new ExportPgnRequest(authToken, 999), new StringBuilder()));
+        assertEquals("bad request", exception.getMessage());
+        exception = assertThrows(Exception.class,
+                () -> gameService.exportPgn(new ExportPgnRequest("bad-token", 0), new StringBuilder()));
+        assertEquals("unauthorized", exception.getMessage());
+    }
+}
@@ -0,0 +1,65 @@
+package websocket;
+
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * A session that records what is sent to it. Its asynchronous writes only
+ * complete when the test says so, unless it is made to complete them right
+ * away.
+ */
+class FakeSession {
+    final List<String> sent = Collections.synchronizedList(new ArrayList<>());
+    final Session session;
+    volatile boolean open = true;
+    private final Deque<WriteCallback> inFlight = new ArrayDeque<>();
+
+    FakeSession() {
+        this(false);
+    }
+
+    /**
+     * @param completeWrites true to finish each write as soon as it starts
+     */
+    FakeSession(boolean completeWrites) {
+        RemoteEndpoint remote = (RemoteEndpoint) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] {RemoteEndpoint.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("sendString") && args.length == 2) {
+                        sent.add((String) args[0]);
+                        if (completeWrites) {
+                            ((WriteCallback) args[1]).writeSuccess();
+                        } else {
+                            inFlight.add((WriteCallback) args[1]);
+                        }
+                        return null;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        session = (Session) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] {Session.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "getRemote" -> remote;
+                    case "isOpen" -> open;
+                    case "close" -> {
+                        open = false;
+                        yield null;
+                    }
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    void finishWrites() {
+        while (!inFlight.isEmpty()) {
+            inFlight.poll().writeSuccess();
+        }
+    }
+}
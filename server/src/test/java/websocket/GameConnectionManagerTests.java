@@ -0,0 +1,56 @@
+package websocket;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.*;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.MoveMessage;
+import websocket.messages.ServerMessage;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameConnectionManagerTests {
+
+    @Test
+    void loadGameIsEncodedOncePerPosition() throws Exception {
+        GameConnectionManager manager = new GameConnectionManager(new SessionSender());
+        ChessGame game = new ChessGame();
+        String opening = manager.loadGameJson(game);
+        assertSame(opening, manager.loadGameJson(game));
+
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        String afterMove = manager.loadGameJson(game);
+        assertNotEquals(opening, afterMove);
+        assertSame(afterMove, manager.loadGameJson(game));
+
+        game.setGameOver(true);
+        assertNotEquals(afterMove, manager.loadGameJson(game));
+    }
+
+    @Test
+    void broadcastMoveSendsMovesOnlyToSessionsThatAskedForThem() throws Exception {
+        GameConnectionManager manager = new GameConnectionManager(new SessionSender());
+        FakeSession optedIn = new FakeSession(true);
+        FakeSession plain = new FakeSession(true);
+        manager.addConnection(optedIn.session, "alice", true);
+        manager.addConnection(plain.session, "bob", false);
+
+        ChessGame game = new ChessGame();
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        game.makeMove(move);
+        manager.broadcastMove(game, move);
+
+        Gson gson = new Gson();
+        assertEquals(1, optedIn.sent.size());
+        MoveMessage moveMessage = gson.fromJson(optedIn.sent.get(0), MoveMessage.class);
+        assertEquals(ServerMessage.ServerMessageType.MOVE, moveMessage.getServerMessageType());
+        assertEquals(move, moveMessage.getMove());
+        assertEquals(1, moveMessage.getPly());
+
+        assertEquals(1, plain.sent.size());
+        LoadGameMessage loadGame = gson.fromJson(plain.sent.get(0), LoadGameMessage.class);
+        assertEquals(ServerMessage.ServerMessageType.LOAD_GAME, loadGame.getServerMessageType());
+        assertEquals(game, loadGame.getGame());
+    }
+}
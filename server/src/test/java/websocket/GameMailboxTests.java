@@ -0,0 +1,72 @@
+package websocket;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class GameMailboxTests {
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void runsTasksOneAtATimeInOrder() throws Exception {
+        GameMailbox mailbox = new GameMailbox(executor, retired -> { });
+        List<Integer> order = new ArrayList<>();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        CountDownLatch queued = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1000);
+        // the first task holds the mailbox busy until everything else is queued
+        assertTrue(mailbox.execute(() -> {
+            try {
+                queued.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+        }));
+        for (int i = 1; i < 1000; i++) {
+            int task = i;
+            assertTrue(mailbox.execute(() -> {
+                if (running.incrementAndGet() != 1) {
+                    overlaps.incrementAndGet();
+                }
+                order.add(task);
+                running.decrementAndGet();
+                done.countDown();
+            }));
+        }
+        queued.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(0, overlaps.get());
+        assertEquals(999, order.size());
+        for (int i = 1; i < order.size(); i++) {
+            assertTrue(order.get(i - 1) < order.get(i));
+        }
+    }
+
+    @Test
+    void retiresWhenIdle() throws Exception {
+        CountDownLatch retired = new CountDownLatch(1);
+        GameMailbox mailbox = new GameMailbox(executor, self -> retired.countDown());
+        assertTrue(mailbox.execute(() -> { }));
+        assertTrue(retired.await(10, TimeUnit.SECONDS));
+        assertFalse(mailbox.execute(() -> { }));
+    }
+}
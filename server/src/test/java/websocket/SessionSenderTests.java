@@ -0,0 +1,63 @@
+package websocket;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+public class SessionSenderTests {
+
+    @Test
+    void sendsInOrderOneAtATime() {
+        SessionSender sender = new SessionSender(10);
+        FakeSession client = new FakeSession();
+        sender.send(client.session, "a");
+        sender.send(client.session, "b");
+        sender.send(client.session, "c");
+        assertEquals(List.of("a"), client.sent);
+        assertEquals(2, sender.getQueuedMessages());
+
+        client.finishWrites();
+        assertEquals(List.of("a", "b", "c"), client.sent);
+        assertEquals(0, sender.getQueuedMessages());
+        assertEquals(2, sender.getMaxQueueDepth());
+    }
+
+    @Test
+    void slowSessionDoesNotHoldUpOthers() {
+        SessionSender sender = new SessionSender(10);
+        FakeSession slow = new FakeSession();
+        FakeSession fast = new FakeSession();
+        for (int i = 0; i < 5; i++) {
+            sender.send(slow.session, "move " + i);
+            sender.send(fast.session, "move " + i);
+            fast.finishWrites();
+        }
+        assertEquals(1, slow.sent.size());
+        assertEquals(5, fast.sent.size());
+    }
+
+    @Test
+    void sessionTooFarBehindIsDisconnected() {
+        SessionSender sender = new SessionSender(3);
+        FakeSession slow = new FakeSession();
+        for (int i = 0; i < 5; i++) {
+            sender.send(slow.session, "move " + i);
+        }
+        assertFalse(slow.open);
+        assertEquals(1, sender.getSlowSessionsDisconnected());
+        assertEquals(0, sender.getQueuedMessages());
+    }
+
+    @Test
+    void forgottenSessionQueueIsDropped() {
+        SessionSender sender = new SessionSender(10);
+        FakeSession client = new FakeSession();
+        sender.send(client.session, "a");
+        sender.send(client.session, "b");
+        sender.forget(client.session);
+        assertEquals(0, sender.getQueuedMessages());
+        client.finishWrites();
+        assertEquals(List.of("a"), client.sent);
+    }
+}
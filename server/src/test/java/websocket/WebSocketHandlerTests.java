@@ -0,0 +1,97 @@
+package websocket;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import dataaccess.DataAccessMemory;
+import model.AuthData;
+import model.GameData;
+import model.UserData;
+import org.junit.jupiter.api.*;
+import websocket.commands.UserGameCommand;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.ServerMessage;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WebSocketHandlerTests {
+    private final Gson gson = new Gson();
+    private WebSocketHandler handler;
+    private int gameID;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DataAccessMemory dataAccess = new DataAccessMemory();
+        dataAccess.createUser(new UserData("alice", "password123", "alice@example.com"));
+        dataAccess.createUser(new UserData("bob", "password123", "bob@example.com"));
+        dataAccess.createAuth(new AuthData("alice-token", "alice"));
+        dataAccess.createAuth(new AuthData("bob-token", "bob"));
+        gameID = dataAccess.createGame(new GameData(0, "alice", "bob", "Live", new ChessGame()));
+        handler = new WebSocketHandler(dataAccess);
+    }
+
+    @Test
+    void moveIsSentAsMoveOnlyToSessionsThatAskedForIt() throws Exception {
+        FakeSession white = new FakeSession(true);
+        FakeSession black = new FakeSession(true);
+        send(white, new UserGameCommand(UserGameCommand.CommandType.CONNECT, "alice-token", gameID, true));
+        send(black, new UserGameCommand(UserGameCommand.CommandType.CONNECT, "bob-token", gameID));
+        awaitMessages(white, 2); // LOAD_GAME, then bob's connect notification
+        awaitMessages(black, 1);
+
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        JsonObject makeMove = gson.toJsonTree(
+                new UserGameCommand(UserGameCommand.CommandType.MAKE_MOVE, "alice-token", gameID)).getAsJsonObject();
+        makeMove.add("move", gson.toJsonTree(move));
+        handler.onMessage(white.session, makeMove.toString());
+
+        awaitMessages(white, 3);
+        awaitMessages(black, 3); // LOAD_GAME, then the move's LOAD_GAME and notification
+        assertEquals(ServerMessage.ServerMessageType.MOVE, typeOf(white.sent.get(2)));
+        assertEquals(ServerMessage.ServerMessageType.LOAD_GAME, typeOf(black.sent.get(1)));
+        assertEquals(1, gson.fromJson(black.sent.get(1), LoadGameMessage.class).getGame().getPly());
+    }
+
+    @Test
+    void syncSendsTheCurrentGame() throws Exception {
+        FakeSession white = new FakeSession(true);
+        send(white, new UserGameCommand(UserGameCommand.CommandType.CONNECT, "alice-token", gameID, true));
+        awaitMessages(white, 1);
+
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        JsonObject makeMove = gson.toJsonTree(
+                new UserGameCommand(UserGameCommand.CommandType.MAKE_MOVE, "alice-token", gameID)).getAsJsonObject();
+        makeMove.add("move", gson.toJsonTree(move));
+        handler.onMessage(white.session, makeMove.toString());
+        send(white, new UserGameCommand(UserGameCommand.CommandType.SYNC, "alice-token", gameID));
+
+        awaitMessages(white, 3);
+        assertEquals(ServerMessage.ServerMessageType.MOVE, typeOf(white.sent.get(1)));
+        LoadGameMessage sync = gson.fromJson(white.sent.get(2), LoadGameMessage.class);
+        assertEquals(ServerMessage.ServerMessageType.LOAD_GAME, sync.getServerMessageType());
+        ChessGame expected = new ChessGame();
+        expected.makeMove(move);
+        assertEquals(expected, sync.getGame());
+        assertEquals(1, sync.getGame().getPly());
+    }
+
+    private void send(FakeSession client, UserGameCommand command) {
+        handler.onMessage(client.session, gson.toJson(command));
+    }
+
+    private ServerMessage.ServerMessageType typeOf(String json) {
+        return gson.fromJson(json, ServerMessage.class).getServerMessageType();
+    }
+
+    /**
+     * Waits for the commands, which run in the background, to have sent at least this many messages
+     */
+    private static void awaitMessages(FakeSession client, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (client.sent.size() < count) {
+            assertTrue(System.nanoTime() < deadline, "timed out waiting for messages, got " + client.sent);
+            Thread.sleep(5);
+        }
+    }
+}
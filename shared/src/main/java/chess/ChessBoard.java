@@ -1,18 +1,43 @@
 package chess;
 
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
 import java.util.Arrays;
-import java.util.Objects;
 
 /**
  * A chessboard that can hold and rearrange chess pieces.
  * <p>
+ * Pieces are stored twice: a 64-square mailbox for direct lookups, and one
+ * bitboard per color and piece type (bit 0 is a1, bit 63 is h8) for the move
+ * generator. Both are kept in sync by {@link #addPiece}.
+ * <p>
+ * As JSON, a board is still an 8x8 {@code squares} array of pieces, rank 1
+ * first, the same as before the bitboards were added. The bitboards and key
+ * are rebuilt when a board is read.
+ * <p>
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
  */
+@JsonAdapter(ChessBoard.JsonFormat.class)
 public class ChessBoard {
-    private ChessPiece[][] squares = new ChessPiece[8][8];
+    private static final ChessGame.TeamColor[] COLORS = ChessGame.TeamColor.values();
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+    private static final int PIECE_TYPES = TYPES.length;
+
+    private transient ChessPiece[] squares = new ChessPiece[64];
+    private transient long[] bitboards = new long[2 * PIECE_TYPES];
+    private transient long whiteOccupancy;
+    private transient long blackOccupancy;
+    private transient long zobristKey;
+
     public ChessBoard() {
-        
+
     }
 
     /**
@@ -22,7 +47,7 @@ public class ChessBoard {
      * @param piece    the piece to add
      */
     public void addPiece(ChessPosition position, ChessPiece piece) {
-        squares[position.getRow()-1][position.getColumn()-1] = piece;
+        setSquare(position.getSquare(), piece);
     }
 
     /**
@@ -33,7 +58,74 @@ public class ChessBoard {
      * position
      */
     public ChessPiece getPiece(ChessPosition position) {
-        return squares[position.getRow()-1][position.getColumn()-1];
+        return squares[position.getSquare()];
+    }
+
+    /**
+     * Gets a chess piece by square index
+     *
+     * @param square 0-63 square index, where a1 is 0 and h8 is 63
+     * @return Either the piece on the square, or null if the square is empty
+     */
+    public ChessPiece getPiece(int square) {
+        return squares[square];
+    }
+
+    /**
+     * @return bitboard of every square holding a piece of the given color and type
+     */
+    public long getBitboard(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return bitboards[bitboardIndex(color, type)];
+    }
+
+    /**
+     * @return bitboard of every square holding a piece of the given color
+     */
+    public long getOccupancy(ChessGame.TeamColor color) {
+        return color == ChessGame.TeamColor.WHITE ? whiteOccupancy : blackOccupancy;
+    }
+
+    /**
+     * @return bitboard of every occupied square
+     */
+    public long getOccupancy() {
+        return whiteOccupancy | blackOccupancy;
+    }
+
+    /**
+     * @return Zobrist key of the pieces on the board, kept up to date as pieces
+     * are added, moved and removed. It does not include whose turn it is;
+     * see {@link ChessGame#getZobristKey()}.
+     */
+    public long getZobristKey() {
+        return zobristKey;
+    }
+
+    private static int bitboardIndex(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return color.ordinal() * PIECE_TYPES + type.ordinal();
+    }
+
+    private void setSquare(int square, ChessPiece piece) {
+        long bit = 1L << square;
+        ChessPiece previous = squares[square];
+        if (previous != null) {
+            int index = bitboardIndex(previous.getTeamColor(), previous.getPieceType());
+            bitboards[index] &= ~bit;
+            whiteOccupancy &= ~bit;
+            blackOccupancy &= ~bit;
+            zobristKey ^= Zobrist.pieceKey(index, square);
+        }
+        squares[square] = piece;
+        if (piece != null) {
+            int index = bitboardIndex(piece.getTeamColor(), piece.getPieceType());
+            bitboards[index] |= bit;
+            zobristKey ^= Zobrist.pieceKey(index, square);
+            if (piece.getTeamColor() == ChessGame.TeamColor.WHITE) {
+                whiteOccupancy |= bit;
+            } else {
+                blackOccupancy |= bit;
+            }
+        }
     }
 
     /**
@@ -42,11 +134,11 @@ public class ChessBoard {
      */
     public void resetBoard() {
         //clear pieces
-        for (int i = 0; i < 8; i++){
-            for (int j = 0; j < 8; j++){
-                squares[i][j] = null;
-            }
-        }
+        Arrays.fill(squares, null);
+        Arrays.fill(bitboards, 0L);
+        whiteOccupancy = 0L;
+        blackOccupancy = 0L;
+        zobristKey = 0L;
         //add white pieces
         addPiece(new ChessPosition(1, 1), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
         addPiece(new ChessPosition(1, 2), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
@@ -76,27 +168,246 @@ public class ChessBoard {
     }
 
     public ChessBoard copyBoard() {
+        // pieces are immutable, so the copy can share them
+        ChessBoard board = new ChessBoard();
+        board.squares = squares.clone();
+        board.bitboards = bitboards.clone();
+        board.whiteOccupancy = whiteOccupancy;
+        board.blackOccupancy = blackOccupancy;
+        board.zobristKey = zobristKey;
+        return board;
+    }
+
+    public void makeMove(ChessMove move){
+        doMove(move);
+    }
+
+    /**
+     * Plays a move in place without checking that it is legal, and returns an
+     * undo record that {@link #undoMove(int)} uses to take it back.
+     * <p>
+     * The undo record packs the start square, end square, moving piece and
+     * captured piece into a single int, so making and taking back moves while
+     * searching does not allocate anything.
+     *
+     * @param move the move to play
+     * @return undo record for the move
+     */
+    public int doMove(ChessMove move) {
+        return doMove(move.getStartPosition().getSquare(), move.getEndPosition().getSquare(),
+                move.getPromotionPiece());
+    }
+
+    int doMove(int from, int to, ChessPiece.PieceType promotion) {
+        ChessPiece piece = squares[from];
+        ChessPiece captured = squares[to];
+        int undo = from | (to << 6) | (pieceCode(piece) << 12) | (pieceCode(captured) << 16);
+        if (promotion != null) {
+            setSquare(to, ChessPiece.of(piece.getTeamColor(), promotion));
+        } else {
+            setSquare(to, piece);
+        }
+        setSquare(from, null);
+        return undo;
+    }
+
+    /**
+     * Takes back a move played by {@link #doMove(ChessMove)}. Moves must be
+     * taken back in the reverse of the order they were played.
+     *
+     * @param undo the undo record returned when the move was played
+     */
+    public void undoMove(int undo) {
+        int from = undo & 0x3F;
+        int to = (undo >>> 6) & 0x3F;
+        setSquare(from, pieceFromCode((undo >>> 12) & 0xF));
+        setSquare(to, pieceFromCode((undo >>> 16) & 0xF));
+    }
+
+    /**
+     * Writes the board as 32 bytes, one 4-bit piece code per square with a1
+     * in the low half of the first byte. 0 is an empty square.
+     */
+    void encodeSquares(byte[] out, int offset) {
+        for (int square = 0; square < 64; square += 2) {
+            out[offset + square / 2] = (byte) (pieceCode(squares[square]) | (pieceCode(squares[square + 1]) << 4));
+        }
+    }
+
+    /**
+     * Reads a board written by {@link #encodeSquares}
+     *
+     * @throws IllegalArgumentException if a square holds an unknown piece code
+     */
+    static ChessBoard decodeSquares(byte[] in, int offset) {
+        ChessBoard board = new ChessBoard();
+        for (int square = 0; square < 64; square++) {
+            int code = (in[offset + square / 2] >>> ((square & 1) * 4)) & 0xF;
+            if (code > 2 * PIECE_TYPES) {
+                throw new IllegalArgumentException("bad piece code " + code + " on square " + square);
+            }
+            if (code != 0) {
+                board.setSquare(square, pieceFromCode(code));
+            }
+        }
+        return board;
+    }
+
+    /**
+     * Reads the piece placement field of a FEN string, from rank 8 down to
+     * rank 1, e.g. rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR for the
+     * starting board
+     *
+     * @param placement the piece placement field
+     * @return the board it describes
+     * @throws IllegalArgumentException if the placement is not valid
+     */
+    public static ChessBoard fromFen(CharSequence placement) {
+        return parseFen(placement, 0, placement.length());
+    }
+
+    /**
+     * Reads a FEN piece placement from part of a longer string, without copying it
+     */
+    static ChessBoard parseFen(CharSequence fen, int start, int end) {
         ChessBoard board = new ChessBoard();
-        for (int i = 1; i <= 8; i++){
-            for (int j = 1; j <= 8; j++){
-                ChessPosition position = new ChessPosition(i, j);
-                ChessPiece piece = getPiece(position);
-                if (piece != null){
-                    board.addPiece(position, new ChessPiece(piece.getTeamColor(), piece.getPieceType()));
+        int row = 8;
+        int col = 1;
+        for (int i = start; i < end; i++) {
+            char c = fen.charAt(i);
+            if (c == '/') {
+                if (col != 9 || row == 1) {
+                    throw new IllegalArgumentException("bad FEN rank " + row);
+                }
+                row--;
+                col = 1;
+            } else if (c >= '1' && c <= '8') {
+                col += c - '0';
+                if (col > 9) {
+                    throw new IllegalArgumentException("bad FEN rank " + row);
+                }
+            } else {
+                ChessPiece.PieceType type = fenPieceType(Character.toLowerCase(c));
+                if (type == null || col > 8) {
+                    throw new IllegalArgumentException("bad FEN piece '" + c + "' on rank " + row);
                 }
+                ChessGame.TeamColor color = Character.isUpperCase(c) ? ChessGame.TeamColor.WHITE
+                        : ChessGame.TeamColor.BLACK;
+                board.setSquare((row - 1) * 8 + col - 1, ChessPiece.of(color, type));
+                col++;
             }
         }
+        if (row != 1 || col != 9) {
+            throw new IllegalArgumentException("FEN placement does not cover the board");
+        }
         return board;
     }
 
-    public void makeMove(ChessMove move){
-        ChessPiece piece = getPiece(move.getStartPosition());
-        if (move.getPromotionPiece() != null) {
-            addPiece(move.getEndPosition(), new ChessPiece(piece.getTeamColor(), move.getPromotionPiece()));
-        } else {
-            addPiece(move.getEndPosition(), piece);
+    /**
+     * @return the board as a FEN piece placement field
+     */
+    public String toFen() {
+        StringBuilder out = new StringBuilder(71);
+        appendFen(out);
+        return out.toString();
+    }
+
+    void appendFen(StringBuilder out) {
+        for (int row = 8; row >= 1; row--) {
+            int empty = 0;
+            for (int square = (row - 1) * 8; square < row * 8; square++) {
+                ChessPiece piece = squares[square];
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    out.append((char) ('0' + empty));
+                    empty = 0;
+                }
+                char c = fenPieceChar(piece.getPieceType());
+                out.append(piece.getTeamColor() == ChessGame.TeamColor.WHITE ? Character.toUpperCase(c) : c);
+            }
+            if (empty > 0) {
+                out.append((char) ('0' + empty));
+            }
+            if (row > 1) {
+                out.append('/');
+            }
+        }
+    }
+
+    private static ChessPiece.PieceType fenPieceType(char c) {
+        return switch (c) {
+            case 'k' -> ChessPiece.PieceType.KING;
+            case 'q' -> ChessPiece.PieceType.QUEEN;
+            case 'b' -> ChessPiece.PieceType.BISHOP;
+            case 'n' -> ChessPiece.PieceType.KNIGHT;
+            case 'r' -> ChessPiece.PieceType.ROOK;
+            case 'p' -> ChessPiece.PieceType.PAWN;
+            default -> null;
+        };
+    }
+
+    private static char fenPieceChar(ChessPiece.PieceType type) {
+        return switch (type) {
+            case KING -> 'k';
+            case QUEEN -> 'q';
+            case BISHOP -> 'b';
+            case KNIGHT -> 'n';
+            case ROOK -> 'r';
+            case PAWN -> 'p';
+        };
+    }
+
+    private static int pieceCode(ChessPiece piece) {
+        return piece == null ? 0 : bitboardIndex(piece.getTeamColor(), piece.getPieceType()) + 1;
+    }
+
+    private static ChessPiece pieceFromCode(int code) {
+        if (code == 0) {
+            return null;
         }
-        addPiece(move.getStartPosition(), null);
+        return ChessPiece.of(COLORS[(code - 1) / PIECE_TYPES], TYPES[(code - 1) % PIECE_TYPES]);
+    }
+
+    /**
+     * @return the square of the given team's king, or -1 if it has no king on the board
+     */
+    public int getKingSquare(ChessGame.TeamColor color) {
+        long king = getBitboard(color, ChessPiece.PieceType.KING);
+        return king == 0 ? -1 : Long.numberOfTrailingZeros(king);
+    }
+
+    /**
+     * Determines if any piece of the given team attacks a square
+     *
+     * @param square   0-63 square index to test
+     * @param attacker the team that might be attacking it
+     * @return true if a piece of that team could capture on the square
+     */
+    public boolean isSquareAttacked(int square, ChessGame.TeamColor attacker) {
+        return attackers(square, attacker, getOccupancy()) != 0;
+    }
+
+    /**
+     * Finds the pieces of a team that attack a square, with sliding pieces
+     * blocked by the given occupancy instead of the board's own
+     *
+     * @return bitboard of the attacking pieces
+     */
+    long attackers(int square, ChessGame.TeamColor attacker, long occupancy) {
+        ChessGame.TeamColor defender = (attacker == ChessGame.TeamColor.WHITE)
+                ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        long queens = getBitboard(attacker, ChessPiece.PieceType.QUEEN);
+        // a pawn attacks this square exactly when a defending pawn here would attack the pawn
+        return (StepAttacks.pawnAttacks(defender, square) & getBitboard(attacker, ChessPiece.PieceType.PAWN))
+                | (StepAttacks.knightAttacks(square) & getBitboard(attacker, ChessPiece.PieceType.KNIGHT))
+                | (StepAttacks.kingAttacks(square) & getBitboard(attacker, ChessPiece.PieceType.KING))
+                | (SlidingAttacks.bishopAttacks(square, occupancy)
+                        & (getBitboard(attacker, ChessPiece.PieceType.BISHOP) | queens))
+                | (SlidingAttacks.rookAttacks(square, occupancy)
+                        & (getBitboard(attacker, ChessPiece.PieceType.ROOK) | queens));
     }
 
     @Override
@@ -104,11 +415,99 @@ public class ChessBoard {
         if (!(o instanceof ChessBoard that)) {
             return false;
         }
-        return Objects.deepEquals(squares, that.squares);
+        // different keys always mean different boards, equal keys are confirmed on the bitboards
+        return zobristKey == that.zobristKey && Arrays.equals(bitboards, that.bitboards);
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(squares);
+        return Long.hashCode(zobristKey);
+    }
+
+    /**
+     * Reads and writes boards in their original JSON shape, so games stored
+     * or sent before the bitboards were added still load
+     */
+    static class JsonFormat extends TypeAdapter<ChessBoard> {
+        @Override
+        public void write(JsonWriter out, ChessBoard board) throws IOException {
+            if (board == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject().name("squares").beginArray();
+            for (int row = 0; row < 8; row++) {
+                out.beginArray();
+                for (int col = 0; col < 8; col++) {
+                    ChessPiece piece = board.squares[row * 8 + col];
+                    if (piece == null) {
+                        out.nullValue();
+                    } else {
+                        out.beginObject()
+                                .name("pieceColor").value(piece.getTeamColor().name())
+                                .name("type").value(piece.getPieceType().name())
+                                .endObject();
+                    }
+                }
+                out.endArray();
+            }
+            out.endArray().endObject();
+        }
+
+        @Override
+        public ChessBoard read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            ChessBoard board = new ChessBoard();
+            in.beginObject();
+            while (in.hasNext()) {
+                if (!in.nextName().equals("squares")) {
+                    in.skipValue();
+                    continue;
+                }
+                in.beginArray();
+                for (int row = 0; in.hasNext(); row++) {
+                    in.beginArray();
+                    for (int col = 0; in.hasNext(); col++) {
+                        ChessPiece piece = readPiece(in);
+                        if (row >= 8 || col >= 8) {
+                            throw new JsonParseException("board squares are not 8x8");
+                        }
+                        if (piece != null) {
+                            board.setSquare(row * 8 + col, piece);
+                        }
+                    }
+                    in.endArray();
+                }
+                in.endArray();
+            }
+            in.endObject();
+            return board;
+        }
+
+        private static ChessPiece readPiece(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            String color = null;
+            String type = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "pieceColor" -> color = in.nextString();
+                    case "type" -> type = in.nextString();
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            try {
+                return ChessPiece.of(ChessGame.TeamColor.valueOf(color), ChessPiece.PieceType.valueOf(type));
+            } catch (IllegalArgumentException | NullPointerException e) {
+                throw new JsonParseException("bad piece " + color + " " + type, e);
+            }
+        }
     }
 }
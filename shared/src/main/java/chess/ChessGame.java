@@ -1,5 +1,6 @@
 package chess;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Objects;
@@ -11,22 +12,36 @@ import java.util.Objects;
  * signature of the existing methods.
  */
 public class ChessGame {
+    /** Length in bytes of {@link #encode()}: the board, one flag byte, the ply and the halfmove clock */
+    public static final int ENCODED_LENGTH = 32 + 1 + Integer.BYTES + Integer.BYTES;
+    private static final int BLACK_TO_MOVE = 1;
+    private static final int GAME_OVER = 2;
+    private static final int WHITE_RESIGNED = 4;
+    private static final int BLACK_RESIGNED = 8;
 
     private ChessBoard board;
     private TeamColor turn;
     private boolean gameOver;
+    private int ply;
+    private int halfmoveClock;
+    // null unless the game ended by resignation, and then left out of the JSON
+    private TeamColor resigned;
+    private transient GameStatus cachedStatus;
+    private transient long cachedStatusKey;
 
+    // ply only counts how the game got here, so two games in the same position are equal
     @Override
     public boolean equals(Object o) {
         if (!(o instanceof ChessGame chessGame)) {
             return false;
         }
-        return gameOver == chessGame.gameOver && Objects.equals(board, chessGame.board) && turn == chessGame.turn;
+        return gameOver == chessGame.gameOver && Objects.equals(board, chessGame.board) && turn == chessGame.turn
+                && resigned == chessGame.resigned;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(board, turn, gameOver);
+        return Objects.hash(board, turn, gameOver, resigned);
     }
 
     public ChessGame() {
@@ -36,6 +51,14 @@ public class ChessGame {
         this.gameOver = false;
     }
 
+    private ChessGame(ChessBoard board, TeamColor turn, boolean gameOver, int ply, int halfmoveClock) {
+        this.board = board;
+        this.turn = turn;
+        this.gameOver = gameOver;
+        this.ply = ply;
+        this.halfmoveClock = halfmoveClock;
+    }
+
     /**
      * @return Which team's turn it is
      */
@@ -52,6 +75,38 @@ public class ChessGame {
         turn = team;
     }
 
+    /**
+     * Gets a 64-bit Zobrist key for the current position, covering the pieces
+     * on the board and whose turn it is. Equal positions always have equal
+     * keys, so the key can be used to cache positions or spot repetitions
+     * without comparing whole boards.
+     *
+     * @return Zobrist key of the position
+     */
+    public long getZobristKey() {
+        return board.getZobristKey() ^ (turn == TeamColor.BLACK ? Zobrist.BLACK_TO_MOVE : 0L);
+    }
+
+    /**
+     * Gets how many moves have been made in this game, counting each side's
+     * move separately. A new game starts at 0.
+     *
+     * @return number of half-moves made so far
+     */
+    public int getPly() {
+        return ply;
+    }
+
+    /**
+     * Gets how many half-moves have been made since the last capture or pawn
+     * move, as in the halfmove clock of a FEN string
+     *
+     * @return half-moves since the last capture or pawn move
+     */
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
     /**
      * Enum identifying the 2 possible teams in a chess game
      */
@@ -60,6 +115,40 @@ public class ChessGame {
         BLACK
     }
 
+    /**
+     * Enum identifying the state of the team whose turn it is
+     */
+    public enum GameStatus {
+        NORMAL,
+        CHECK,
+        CHECKMATE,
+        STALEMATE
+    }
+
+    /**
+     * Gets whether the team whose turn it is is in check, checkmate or
+     * stalemate. The result is cached against the position's Zobrist key, so
+     * asking again before the board or turn changes costs nothing.
+     *
+     * @return status of the team whose turn it is
+     */
+    public GameStatus getStatus() {
+        long key = getZobristKey();
+        if (cachedStatus == null || cachedStatusKey != key) {
+            cachedStatus = computeStatus(turn);
+            cachedStatusKey = key;
+        }
+        return cachedStatus;
+    }
+
+    private GameStatus computeStatus(TeamColor teamColor) {
+        boolean inCheck = isInCheck(teamColor);
+        if (hasValidMoves(teamColor)) {
+            return inCheck ? GameStatus.CHECK : GameStatus.NORMAL;
+        }
+        return inCheck ? GameStatus.CHECKMATE : GameStatus.STALEMATE;
+    }
+
     /**
      * @return true if the game is over (checkmate, stalemate, or resignation)
      */
@@ -73,6 +162,26 @@ public class ChessGame {
      */
     public void setGameOver(boolean gameOver) {
         this.gameOver = gameOver;
+        if (!gameOver) {
+            resigned = null;
+        }
+    }
+
+    /**
+     * Ends the game with a team resigning
+     *
+     * @param team the team that resigned
+     */
+    public void resign(TeamColor team) {
+        gameOver = true;
+        resigned = team;
+    }
+
+    /**
+     * @return the team that resigned, or null if nobody has
+     */
+    public TeamColor getResignedTeam() {
+        return resigned;
     }
 
     /**
@@ -87,20 +196,20 @@ public class ChessGame {
         if (piece == null) {
             return null;
         }
-        Collection<ChessMove> possibleMoves = piece.pieceMoves(board, startPosition);
         Collection<ChessMove> validMoves = new ArrayList<>();
-        for (ChessMove move : possibleMoves) {
-            ChessBoard tempBoard = board.copyBoard();
-            tempBoard.makeMove(move);
-            ChessGame tempGame = new ChessGame();
-            tempGame.setBoard(tempBoard);
-            if (!tempGame.isInCheck(piece.getTeamColor())) {
-                validMoves.add(move);
-            }
-        }
+        LegalMoveGenerator.generate(board, piece.getTeamColor(), 1L << startPosition.getSquare(), validMoves);
         return validMoves;
     }
 
+    /**
+     * Gets every legal move for the team whose turn it is
+     *
+     * @return Collection of legal moves, empty if that team is checkmated or stalemated
+     */
+    public Collection<ChessMove> legalMoves() {
+        return LegalMoveGenerator.generate(board, turn);
+    }
+
     /**
      * Makes a move in a chess game
      *
@@ -123,13 +232,18 @@ public class ChessGame {
             throw new InvalidMoveException("Invalid move");
         }
 
+        boolean resetsClock = piece.getPieceType() == ChessPiece.PieceType.PAWN
+                || board.getPiece(move.getEndPosition()) != null;
         board.makeMove(move);
+        ply++;
+        halfmoveClock = resetsClock ? 0 : halfmoveClock + 1;
         if (turn == TeamColor.WHITE) {
             turn = TeamColor.BLACK;
         } else {
             turn = TeamColor.WHITE;
         }
-        if (isInCheckmate(turn) || isInStalemate(turn)){
+        GameStatus status = getStatus();
+        if (status == GameStatus.CHECKMATE || status == GameStatus.STALEMATE){
             gameOver = true;
         }
     }
@@ -141,34 +255,16 @@ public class ChessGame {
      * @return True if the specified team is in check
      */
     public boolean isInCheck(TeamColor teamColor) {
-        ChessPosition kingsPosition = findKingPosition(teamColor);
-        if (kingsPosition == null) {
+        int kingSquare = board.getKingSquare(teamColor);
+        if (kingSquare < 0) {
             return false; // No king found, can't be in check
         }
         TeamColor enemyColor = (teamColor == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE;
-
-        for (int i = 1; i <= 8; i++) {
-            for (int j = 1; j <= 8; j++) {
-                ChessPosition position = new ChessPosition(i, j);
-                ChessPiece piece = board.getPiece(position);
-                if (piece == null || piece.getTeamColor() != enemyColor) {
-                    continue;
-                }
-                if (canPieceAttackPosition(piece, position, kingsPosition)) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        return board.isSquareAttacked(kingSquare, enemyColor);
     }
 
-    private boolean canPieceAttackPosition(ChessPiece piece, ChessPosition from, ChessPosition target) {
-        for (ChessMove move : piece.pieceMoves(board, from)) {
-            if (move.getEndPosition().equals(target)) {
-                return true;
-            }
-        }
-        return false;
+    private boolean hasValidMoves(TeamColor teamColor) {
+        return !LegalMoveGenerator.generate(board, teamColor).isEmpty();
     }
 
     /**
@@ -177,28 +273,11 @@ public class ChessGame {
      * @param teamColor which team to check for checkmate
      * @return True if the specified team is in checkmate
      */
-
-    private boolean hasValidMoves(TeamColor teamColor) {
-        for (int i = 1; i <= 8; i++) {
-            for (int j = 1; j <= 8; j++) {
-                ChessPosition position = new ChessPosition(i, j);
-                ChessPiece piece = board.getPiece(position);
-                if (piece != null && piece.getTeamColor() == teamColor) {
-                    Collection<ChessMove> legalMoves = validMoves(position);
-                    if (legalMoves != null && !legalMoves.isEmpty()) {
-                        return true;
-                    }
-                }
-            }
-        }
-        return false;
-    }
-
     public boolean isInCheckmate(TeamColor teamColor) {
-        if (!isInCheck(teamColor)) {
-            return false;
+        if (teamColor == turn) {
+            return getStatus() == GameStatus.CHECKMATE;
         }
-        return !hasValidMoves(teamColor);
+        return isInCheck(teamColor) && !hasValidMoves(teamColor);
     }
 
     /**
@@ -209,10 +288,10 @@ public class ChessGame {
      * @return True if the specified team is in stalemate, otherwise false
      */
     public boolean isInStalemate(TeamColor teamColor) {
-        if (isInCheck(teamColor)) {
-            return false;
+        if (teamColor == turn) {
+            return getStatus() == GameStatus.STALEMATE;
         }
-        return !hasValidMoves(teamColor);
+        return !isInCheck(teamColor) && !hasValidMoves(teamColor);
     }
 
     /**
@@ -223,6 +302,7 @@ public class ChessGame {
     public void setBoard(ChessBoard board) {
         this.board = board;
         gameOver = false;
+        resigned = null;
     }
 
     /**
@@ -234,16 +314,160 @@ public class ChessGame {
         return board;
     }
 
-    private ChessPosition findKingPosition(TeamColor teamColor) {
-        for (int i=1; i<=8;i++){
-            for (int j=1; j<=8; j++) {
-                ChessPosition position = new ChessPosition(i, j);
-                ChessPiece piece = board.getPiece(position);
-                if (piece != null && piece.getTeamColor() == teamColor && piece.getPieceType() == ChessPiece.PieceType.KING) {
-                    return position;
+    /**
+     * Encodes the game in {@value #ENCODED_LENGTH} bytes: 4 bits per square,
+     * a flag byte for whose turn it is, whether the game is over and who
+     * resigned, then the
+     * ply and the halfmove clock. Much smaller than JSON, for storing or
+     * sending games.
+     *
+     * @return the encoded game
+     */
+    public byte[] encode() {
+        byte[] bytes = new byte[ENCODED_LENGTH];
+        board.encodeSquares(bytes, 0);
+        bytes[32] = (byte) ((turn == TeamColor.BLACK ? BLACK_TO_MOVE : 0) | (gameOver ? GAME_OVER : 0)
+                | (resigned == TeamColor.WHITE ? WHITE_RESIGNED : 0) | (resigned == TeamColor.BLACK ? BLACK_RESIGNED : 0));
+        ByteBuffer.wrap(bytes, 33, 2 * Integer.BYTES).putInt(ply).putInt(halfmoveClock);
+        return bytes;
+    }
+
+    /**
+     * Decodes a game written by {@link #encode()}
+     *
+     * @param bytes the encoded game
+     * @return the decoded game
+     * @throws IllegalArgumentException if the bytes are not an encoded game
+     */
+    public static ChessGame decode(byte[] bytes) {
+        if (bytes.length != ENCODED_LENGTH) {
+            throw new IllegalArgumentException("encoded game is " + bytes.length + " bytes, expected " + ENCODED_LENGTH);
+        }
+        ByteBuffer counters = ByteBuffer.wrap(bytes, 33, 2 * Integer.BYTES);
+        ChessGame game = new ChessGame(ChessBoard.decodeSquares(bytes, 0),
+                (bytes[32] & BLACK_TO_MOVE) != 0 ? TeamColor.BLACK : TeamColor.WHITE,
+                (bytes[32] & GAME_OVER) != 0,
+                counters.getInt(),
+                counters.getInt());
+        if ((bytes[32] & WHITE_RESIGNED) != 0) {
+            game.resigned = TeamColor.WHITE;
+        } else if ((bytes[32] & BLACK_RESIGNED) != 0) {
+            game.resigned = TeamColor.BLACK;
+        }
+        return game;
+    }
+
+    /**
+     * Reads a game from a FEN string, such as
+     * rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1. The clocks may
+     * be left off, as in EPD. Castling and en passant are not part of this
+     * game's rules, so those fields are checked but otherwise ignored. The
+     * ply is worked out from the fullmove number and side to move.
+     *
+     * @param fen the FEN string, read in place without being copied
+     * @return the game it describes
+     * @throws IllegalArgumentException if the string is not valid FEN
+     */
+    public static ChessGame fromFen(CharSequence fen) {
+        int[] fieldEnds = new int[6];
+        int fields = 0;
+        int length = fen.length();
+        for (int i = 0; i <= length; i++) {
+            if (i == length || fen.charAt(i) == ' ') {
+                if (fields == fieldEnds.length) {
+                    throw new IllegalArgumentException("FEN has too many fields");
                 }
+                fieldEnds[fields++] = i;
+            }
+        }
+        if (fields != 4 && fields != 6) {
+            throw new IllegalArgumentException("FEN needs 4 or 6 fields, found " + fields);
+        }
+
+        ChessBoard board = ChessBoard.parseFen(fen, 0, fieldEnds[0]);
+
+        int start = fieldEnds[0] + 1;
+        if (fieldEnds[1] - start != 1 || (fen.charAt(start) != 'w' && fen.charAt(start) != 'b')) {
+            throw new IllegalArgumentException("FEN side to move must be w or b");
+        }
+        TeamColor turn = fen.charAt(start) == 'w' ? TeamColor.WHITE : TeamColor.BLACK;
+
+        checkCastling(fen, fieldEnds[1] + 1, fieldEnds[2]);
+        checkEnPassant(fen, fieldEnds[2] + 1, fieldEnds[3]);
+
+        int halfmoveClock = 0;
+        int fullmove = 1;
+        if (fields == 6) {
+            halfmoveClock = parseCount(fen, fieldEnds[3] + 1, fieldEnds[4]);
+            fullmove = parseCount(fen, fieldEnds[4] + 1, fieldEnds[5]);
+            if (fullmove < 1) {
+                throw new IllegalArgumentException("FEN fullmove number must be at least 1");
+            }
+        }
+        int ply = 2 * (fullmove - 1) + (turn == TeamColor.BLACK ? 1 : 0);
+
+        ChessGame game = new ChessGame(board, turn, false, ply, halfmoveClock);
+        GameStatus status = game.getStatus();
+        game.gameOver = status == GameStatus.CHECKMATE || status == GameStatus.STALEMATE;
+        return game;
+    }
+
+    /**
+     * Writes the game as a FEN string. Castling and en passant are always
+     * "-", and the fullmove number comes from the ply.
+     *
+     * @return the FEN string
+     */
+    public String toFen() {
+        StringBuilder out = new StringBuilder(90);
+        board.appendFen(out);
+        out.append(turn == TeamColor.WHITE ? " w - - " : " b - - ")
+                .append(halfmoveClock).append(' ')
+                .append(ply / 2 + 1);
+        return out.toString();
+    }
+
+    private static void checkCastling(CharSequence fen, int start, int end) {
+        if (end - start == 1 && fen.charAt(start) == '-') {
+            return;
+        }
+        // any of KQkq, each at most once and in that order
+        String order = "KQkq";
+        int next = 0;
+        for (int i = start; i < end; i++) {
+            int index = order.indexOf(fen.charAt(i), next);
+            if (index < 0) {
+                throw new IllegalArgumentException("bad FEN castling rights");
+            }
+            next = index + 1;
+        }
+        if (end == start) {
+            throw new IllegalArgumentException("bad FEN castling rights");
+        }
+    }
+
+    private static void checkEnPassant(CharSequence fen, int start, int end) {
+        if (end - start == 1 && fen.charAt(start) == '-') {
+            return;
+        }
+        if (end - start != 2 || fen.charAt(start) < 'a' || fen.charAt(start) > 'h'
+                || (fen.charAt(start + 1) != '3' && fen.charAt(start + 1) != '6')) {
+            throw new IllegalArgumentException("bad FEN en passant square");
+        }
+    }
+
+    private static int parseCount(CharSequence fen, int start, int end) {
+        if (end == start || end - start > 9) {
+            throw new IllegalArgumentException("bad FEN move count");
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = fen.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new IllegalArgumentException("bad FEN move count");
             }
+            value = value * 10 + (c - '0');
         }
-        return null;
+        return value;
     }
 }
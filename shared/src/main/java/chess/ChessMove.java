@@ -17,6 +17,8 @@ public class ChessMove {
     private final ChessPosition endPosition;
     private final ChessPiece.PieceType promotionPiece;
 
+    private static final ChessPiece.PieceType[] PIECE_TYPES = ChessPiece.PieceType.values();
+
     public ChessMove(ChessPosition startPosition, ChessPosition endPosition,
                      ChessPiece.PieceType promotionPiece) {
         this.startPosition = startPosition;
@@ -48,6 +50,28 @@ public class ChessMove {
         return promotionPiece;
     }
 
+    /**
+     * Packs this move into 15 bits: the start square, the end square shifted
+     * left 6, and the promotion piece shifted left 12 (0 for none, otherwise
+     * its piece type ordinal plus one). Squares are numbered as in
+     * {@link ChessPosition#getSquare()}.
+     *
+     * @return the move code, which fits in a signed 16-bit integer
+     */
+    public int toCode() {
+        int promotion = promotionPiece == null ? 0 : promotionPiece.ordinal() + 1;
+        return startPosition.getSquare() | endPosition.getSquare() << 6 | promotion << 12;
+    }
+
+    /**
+     * Unpacks a move packed by {@link #toCode()}
+     */
+    public static ChessMove fromCode(int code) {
+        int promotion = (code >>> 12) & 7;
+        return new ChessMove(ChessPosition.fromSquare(code & 63), ChessPosition.fromSquare((code >>> 6) & 63),
+                promotion == 0 ? null : PIECE_TYPES[promotion - 1]);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (!(o instanceof ChessMove chessMove)) {
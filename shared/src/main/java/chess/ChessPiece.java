@@ -12,6 +12,16 @@ import java.util.Objects;
  */
 public class ChessPiece {
 
+    private static final ChessPiece[] SHARED = new ChessPiece[12];
+
+    static {
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (PieceType type : PieceType.values()) {
+                SHARED[color.ordinal() * 6 + type.ordinal()] = new ChessPiece(color, type);
+            }
+        }
+    }
+
     private final ChessGame.TeamColor pieceColor;
     private final PieceType type;
 
@@ -20,6 +30,16 @@ public class ChessPiece {
         this.type = type;
     }
 
+    /**
+     * Gets a shared instance of a piece. Pieces are immutable, so code that
+     * places pieces often can reuse these instead of allocating new ones.
+     *
+     * @return the shared piece of the given color and type
+     */
+    public static ChessPiece of(ChessGame.TeamColor pieceColor, PieceType type) {
+        return SHARED[pieceColor.ordinal() * 6 + type.ordinal()];
+    }
+
     @Override
     public boolean equals(Object o) {
         if (!(o instanceof ChessPiece that)) {
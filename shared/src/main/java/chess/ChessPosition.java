@@ -11,6 +11,14 @@ import com.google.gson.annotations.SerializedName;
  */
 public class ChessPosition {
 
+    private static final ChessPosition[] SQUARES = new ChessPosition[64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            SQUARES[square] = new ChessPosition(square / 8 + 1, square % 8 + 1);
+        }
+    }
+
     @SerializedName("row")
     private final int row;
     @SerializedName("col")
@@ -37,6 +45,24 @@ public class ChessPosition {
         return col;
     }
 
+    /**
+     * @return the 0-63 square index of this position, where a1 is 0 and h8 is 63
+     */
+    public int getSquare() {
+        return (row - 1) * 8 + (col - 1);
+    }
+
+    /**
+     * Gets the shared position for a square index, so hot loops do not have to
+     * allocate a new position for every square they look at
+     *
+     * @param square 0-63 square index, where a1 is 0 and h8 is 63
+     * @return the position of that square
+     */
+    public static ChessPosition fromSquare(int square) {
+        return SQUARES[square];
+    }
+
     @Override
     public boolean equals(Object o) {
         if (!(o instanceof ChessPosition that)) {
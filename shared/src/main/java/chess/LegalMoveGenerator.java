@@ -0,0 +1,123 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Generates only legal moves, without playing each candidate to see if it
+ * leaves the king in danger.
+ * <p>
+ * The pieces giving check and the pieces pinned to the king are worked out
+ * once per position. After that, the king may only step to squares that are
+ * not attacked, other pieces must block or capture a single checker, and a
+ * pinned piece may only move along the line between its king and the pinner.
+ */
+final class LegalMoveGenerator {
+
+    private static final long ALL_SQUARES = -1L;
+
+    private LegalMoveGenerator() {
+    }
+
+    /**
+     * @return every legal move for the given team
+     */
+    static List<ChessMove> generate(ChessBoard board, ChessGame.TeamColor color) {
+        List<ChessMove> moves = new ArrayList<>();
+        generate(board, color, board.getOccupancy(color), moves);
+        return moves;
+    }
+
+    /**
+     * Adds the legal moves of the given team's pieces on the {@code from}
+     * squares to {@code moves}
+     *
+     * @param from bitboard of the pieces to generate moves for
+     */
+    static void generate(ChessBoard board, ChessGame.TeamColor color, long from, Collection<ChessMove> moves) {
+        ChessGame.TeamColor enemy = (color == ChessGame.TeamColor.WHITE) ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        int kingSquare = board.getKingSquare(color);
+        long pieces = from & board.getOccupancy(color);
+        if (kingSquare < 0) {
+            // without a king nothing can be illegal
+            while (pieces != 0) {
+                int square = Long.numberOfTrailingZeros(pieces);
+                addMoves(board, square, ChessMovesCalculator.targets(board, square, board.getPiece(square)), moves);
+                pieces &= pieces - 1;
+            }
+            return;
+        }
+
+        long occupancy = board.getOccupancy();
+        long kingBit = 1L << kingSquare;
+        long checkers = board.attackers(kingSquare, enemy, occupancy);
+
+        if ((pieces & kingBit) != 0) {
+            // the king must not be counted as a blocker, or it could step back along a checking ray
+            long targets = ChessMovesCalculator.targets(board, kingSquare, board.getPiece(kingSquare));
+            long safe = 0;
+            while (targets != 0) {
+                int target = Long.numberOfTrailingZeros(targets);
+                if (board.attackers(target, enemy, occupancy ^ kingBit) == 0) {
+                    safe |= 1L << target;
+                }
+                targets &= targets - 1;
+            }
+            addMoves(board, kingSquare, safe, moves);
+            pieces ^= kingBit;
+        }
+
+        if (Long.bitCount(checkers) > 1) {
+            return; // double check, only the king can move
+        }
+        long checkMask = ALL_SQUARES;
+        if (checkers != 0) {
+            checkMask = checkers | SlidingAttacks.between(kingSquare, Long.numberOfTrailingZeros(checkers));
+        }
+
+        long pinned = 0;
+        long[] pinLines = null;
+        long snipers = pinners(board, kingSquare, enemy);
+        while (snipers != 0) {
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            long line = SlidingAttacks.between(kingSquare, sniper);
+            long blockers = line & occupancy;
+            if (Long.bitCount(blockers) == 1 && (blockers & board.getOccupancy(color)) != 0) {
+                if (pinLines == null) {
+                    pinLines = new long[64];
+                }
+                pinned |= blockers;
+                pinLines[Long.numberOfTrailingZeros(blockers)] = line | (1L << sniper);
+            }
+            snipers &= snipers - 1;
+        }
+
+        while (pieces != 0) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            long targets = ChessMovesCalculator.targets(board, square, board.getPiece(square)) & checkMask;
+            if ((pinned & (1L << square)) != 0) {
+                targets &= pinLines[square];
+            }
+            addMoves(board, square, targets, moves);
+            pieces &= pieces - 1;
+        }
+    }
+
+    /**
+     * Enemy sliders that would attack the king if the pieces between them
+     * were removed
+     */
+    private static long pinners(ChessBoard board, int kingSquare, ChessGame.TeamColor enemy) {
+        long enemyPieces = board.getOccupancy(enemy);
+        long queens = board.getBitboard(enemy, ChessPiece.PieceType.QUEEN);
+        return (SlidingAttacks.rookAttacks(kingSquare, enemyPieces)
+                & (board.getBitboard(enemy, ChessPiece.PieceType.ROOK) | queens))
+                | (SlidingAttacks.bishopAttacks(kingSquare, enemyPieces)
+                & (board.getBitboard(enemy, ChessPiece.PieceType.BISHOP) | queens));
+    }
+
+    private static void addMoves(ChessBoard board, int square, long targets, Collection<ChessMove> moves) {
+        ChessMovesCalculator.addMoves(moves, ChessPosition.fromSquare(square), board.getPiece(square), targets);
+    }
+}
@@ -0,0 +1,91 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Perft split across a {@link ForkJoinPool}: the moves at the top one or two
+ * plies each become a task, and every task searches its own copy of the
+ * board. Besides using every core for benchmarking, matching the serial
+ * {@link Perft} counts shows the move generator keeps no shared mutable state.
+ */
+public final class ParallelPerft {
+
+    private ParallelPerft() {
+    }
+
+    /**
+     * Counts the positions reachable in exactly {@code depth} moves, using the
+     * common fork/join pool and splitting at the root only. The game is not modified.
+     */
+    public static long perft(ChessGame game, int depth) {
+        return perft(game, depth, 1, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Counts the positions reachable in exactly {@code depth} moves. The game
+     * is not modified.
+     *
+     * @param splitPlies how many plies from the root to turn into separate tasks (1 or 2 is usually plenty)
+     * @param pool       pool to run the tasks on
+     */
+    public static long perft(ChessGame game, int depth, int splitPlies, ForkJoinPool pool) {
+        return pool.invoke(new PerftTask(game.getBoard().copyBoard(), game.getTeamTurn(), depth, splitPlies));
+    }
+
+    private static class PerftTask extends RecursiveTask<Long> {
+        private final ChessBoard board;
+        private final ChessGame.TeamColor turn;
+        private final int depth;
+        private final int splitPlies;
+
+        PerftTask(ChessBoard board, ChessGame.TeamColor turn, int depth, int splitPlies) {
+            this.board = board;
+            this.turn = turn;
+            this.depth = depth;
+            this.splitPlies = splitPlies;
+        }
+
+        @Override
+        protected Long compute() {
+            if (splitPlies <= 0 || depth <= 1) {
+                return Perft.perft(board, turn, depth);
+            }
+            List<PerftTask> children = new ArrayList<>();
+            for (ChessMove move : LegalMoveGenerator.generate(board, turn)) {
+                ChessBoard child = board.copyBoard();
+                child.doMove(move);
+                children.add(new PerftTask(child, Perft.opponent(turn), depth - 1, splitPlies - 1));
+            }
+            long nodes = 0;
+            for (PerftTask task : invokeAll(children)) {
+                nodes += task.join();
+            }
+            return nodes;
+        }
+    }
+
+    /**
+     * Benchmarks parallel perft from the starting position
+     *
+     * @param args optional search depth (default 6), split plies (default 2) and number of timed runs (default 3)
+     */
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+        int splitPlies = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        ChessGame game = new ChessGame();
+        perft(game, depth - 1, splitPlies, pool); // warm up the JIT before timing
+        for (int run = 1; run <= runs; run++) {
+            long start = System.nanoTime();
+            long nodes = perft(game, depth, splitPlies, pool);
+            long elapsed = System.nanoTime() - start;
+            System.out.printf("run %d: depth %d on %d threads, %d nodes in %d ms (%,d nodes/s)%n",
+                    run, depth, pool.getParallelism(), nodes, elapsed / 1_000_000,
+                    nodes * 1_000_000_000L / Math.max(elapsed, 1));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package chess;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts the leaf nodes of the legal move tree to a fixed depth ("perft").
+ * <p>
+ * Node counts for known positions catch move generation bugs, and the
+ * nodes per second of a run is a throughput number for the move generator.
+ * Run {@link #main} to benchmark from the starting position, e.g.
+ * <code>java -cp shared/target/classes chess.Perft 5</code>.
+ * <p>
+ * Castling and en passant are not part of this game's rules, so published
+ * reference counts only apply to depths where neither move can come up.
+ */
+public final class Perft {
+
+    private Perft() {
+    }
+
+    /**
+     * Counts the positions reachable in exactly {@code depth} moves. The game's
+     * board is played on in place and is back in its original state on return.
+     *
+     * @param game  position to start from, with the side to move taken from its turn
+     * @param depth number of moves to look ahead
+     * @return number of leaf positions
+     */
+    public static long perft(ChessGame game, int depth) {
+        return perft(game.getBoard(), game.getTeamTurn(), depth);
+    }
+
+    /**
+     * Counts the leaf positions below each legal move, which is the usual way
+     * to narrow down a perft mismatch to a single move
+     *
+     * @return leaf count for each root move, in generation order
+     */
+    public static Map<ChessMove, Long> divide(ChessGame game, int depth) {
+        ChessBoard board = game.getBoard();
+        ChessGame.TeamColor turn = game.getTeamTurn();
+        Map<ChessMove, Long> counts = new LinkedHashMap<>();
+        for (ChessMove move : LegalMoveGenerator.generate(board, turn)) {
+            int undo = board.doMove(move);
+            counts.put(move, depth <= 1 ? 1 : perft(board, opponent(turn), depth - 1));
+            board.undoMove(undo);
+        }
+        return counts;
+    }
+
+    static long perft(ChessBoard board, ChessGame.TeamColor turn, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        List<ChessMove> moves = LegalMoveGenerator.generate(board, turn);
+        if (depth == 1) {
+            return moves.size(); // every legal move is a leaf, no need to play them
+        }
+        long nodes = 0;
+        ChessGame.TeamColor next = opponent(turn);
+        for (ChessMove move : moves) {
+            int undo = board.doMove(move);
+            nodes += perft(board, next, depth - 1);
+            board.undoMove(undo);
+        }
+        return nodes;
+    }
+
+    static ChessGame.TeamColor opponent(ChessGame.TeamColor color) {
+        return color == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+    }
+
+    /**
+     * Benchmarks perft from the starting position
+     *
+     * @param args optional search depth (default 5) and number of timed runs (default 5)
+     */
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        ChessGame game = new ChessGame();
+        perft(game, depth); // warm up the JIT before timing
+        for (int run = 1; run <= runs; run++) {
+            long start = System.nanoTime();
+            long nodes = perft(game, depth);
+            long elapsed = System.nanoTime() - start;
+            System.out.printf("run %d: depth %d, %d nodes in %d ms (%,d nodes/s)%n",
+                    run, depth, nodes, elapsed / 1_000_000, nodes * 1_000_000_000L / Math.max(elapsed, 1));
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package chess;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes games as PGN, one after another, to any {@link Appendable}. Only one
+ * game is held in memory at a time, so a whole database of games can be
+ * streamed out without building it up first.
+ */
+public class PgnWriter {
+    private static final int LINE_LENGTH = 80;
+
+    private final Appendable out;
+
+    public PgnWriter(Appendable out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes one game that did not end by resignation, unless {@code start}
+     * already records one
+     *
+     * @see #writeGame(Map, ChessGame, List, ChessGame.TeamColor)
+     */
+    public void writeGame(Map<String, String> tags, ChessGame start, List<ChessMove> moves) throws IOException {
+        writeGame(tags, start, moves, null);
+    }
+
+    /**
+     * Writes one game. The Result tag is worked out from the final position
+     * or the resignation, and a FEN tag is added when the game does not
+     * start from the usual starting position.
+     *
+     * @param tags     tags to write before the result, such as Event, White and Black
+     * @param start    the position the moves are played from, which this plays the moves onto
+     * @param moves    the moves of the game, in order
+     * @param resigned the team that resigned after the last move, or null if neither did
+     * @throws IllegalArgumentException if one of the moves is not legal
+     */
+    public void writeGame(Map<String, String> tags, ChessGame start, List<ChessMove> moves,
+                          ChessGame.TeamColor resigned) throws IOException {
+        boolean setUp = !start.equals(new ChessGame()) || start.getPly() != 0;
+        String fen = setUp ? start.toFen() : null;
+
+        StringBuilder movetext = new StringBuilder(moves.size() * 6);
+        int lineStart = 0;
+        for (ChessMove move : moves) {
+            int ply = start.getPly();
+            String san = toSan(start, move);
+            String token;
+            if (ply % 2 == 0) {
+                token = (ply / 2 + 1) + ". " + san;
+            } else if (movetext.isEmpty()) {
+                token = (ply / 2 + 1) + "... " + san;
+            } else {
+                token = san;
+            }
+            lineStart = appendToken(movetext, lineStart, token);
+        }
+        if (resigned != null) {
+            start.resign(resigned);
+        }
+        String result = result(start);
+        appendToken(movetext, lineStart, result);
+
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            writeTag(tag.getKey(), tag.getValue());
+        }
+        writeTag("Result", result);
+        if (setUp) {
+            writeTag("SetUp", "1");
+            writeTag("FEN", fen);
+        }
+        out.append('\n').append(movetext).append("\n\n");
+    }
+
+    /**
+     * Gets a move in standard algebraic notation, such as Nbd7, exd5 or
+     * e8=Q+, and plays it
+     *
+     * @param game the game to play the move in, before the move is made
+     * @param move the move to describe
+     * @return the move in SAN
+     * @throws IllegalArgumentException if the move is not legal
+     */
+    public static String toSan(ChessGame game, ChessMove move) {
+        ChessBoard board = game.getBoard();
+        ChessPiece piece = board.getPiece(move.getStartPosition());
+        if (piece == null) {
+            throw new IllegalArgumentException("no piece to move at ply " + (game.getPly() + 1));
+        }
+        ChessPosition from = move.getStartPosition();
+        ChessPosition to = move.getEndPosition();
+        boolean capture = board.getPiece(to) != null;
+
+        StringBuilder san = new StringBuilder(8);
+        if (piece.getPieceType() == ChessPiece.PieceType.PAWN) {
+            if (capture) {
+                san.append(file(from)).append('x');
+            }
+        } else {
+            san.append(pieceLetter(piece.getPieceType()));
+            appendDisambiguation(san, game.legalMoves(), board, piece, move);
+            if (capture) {
+                san.append('x');
+            }
+        }
+        san.append(file(to)).append(to.getRow());
+        if (move.getPromotionPiece() != null) {
+            san.append('=').append(pieceLetter(move.getPromotionPiece()));
+        }
+
+        try {
+            game.makeMove(move);
+        } catch (InvalidMoveException e) {
+            throw new IllegalArgumentException("illegal move at ply " + (game.getPly() + 1), e);
+        }
+        switch (game.getStatus()) {
+            case CHECK -> san.append('+');
+            case CHECKMATE -> san.append('#');
+            default -> {
+            }
+        }
+        return san.toString();
+    }
+
+    /**
+     * Adds the file, rank or both of the moving piece when another piece of
+     * the same kind could also move to the same square
+     */
+    private static void appendDisambiguation(StringBuilder san, Collection<ChessMove> legalMoves, ChessBoard board,
+                                             ChessPiece piece, ChessMove move) {
+        boolean ambiguous = false;
+        boolean sameFile = false;
+        boolean sameRank = false;
+        for (ChessMove other : legalMoves) {
+            ChessPosition otherFrom = other.getStartPosition();
+            if (!other.getEndPosition().equals(move.getEndPosition())
+                    || otherFrom.equals(move.getStartPosition())
+                    || !piece.equals(board.getPiece(otherFrom))) {
+                continue;
+            }
+            ambiguous = true;
+            sameFile |= otherFrom.getColumn() == move.getStartPosition().getColumn();
+            sameRank |= otherFrom.getRow() == move.getStartPosition().getRow();
+        }
+        if (!ambiguous) {
+            return;
+        }
+        if (!sameFile) {
+            san.append(file(move.getStartPosition()));
+        } else if (!sameRank) {
+            san.append(move.getStartPosition().getRow());
+        } else {
+            san.append(file(move.getStartPosition())).append(move.getStartPosition().getRow());
+        }
+    }
+
+    private static String result(ChessGame game) {
+        if (game.getResignedTeam() != null) {
+            return game.getResignedTeam() == ChessGame.TeamColor.WHITE ? "0-1" : "1-0";
+        }
+        return switch (game.getStatus()) {
+            case CHECKMATE -> game.getTeamTurn() == ChessGame.TeamColor.WHITE ? "0-1" : "1-0";
+            case STALEMATE -> "1/2-1/2";
+            default -> "*";
+        };
+    }
+
+    private static int appendToken(StringBuilder movetext, int lineStart, String token) {
+        if (movetext.length() > lineStart) {
+            if (movetext.length() - lineStart + 1 + token.length() > LINE_LENGTH) {
+                movetext.append('\n');
+                lineStart = movetext.length();
+            } else {
+                movetext.append(' ');
+            }
+        }
+        movetext.append(token);
+        return lineStart;
+    }
+
+    private void writeTag(String name, String value) throws IOException {
+        out.append('[').append(name).append(" \"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\');
+            }
+            out.append(c);
+        }
+        out.append("\"]\n");
+    }
+
+    private static char file(ChessPosition position) {
+        return (char) ('a' + position.getColumn() - 1);
+    }
+
+    private static char pieceLetter(ChessPiece.PieceType type) {
+        return switch (type) {
+            case KING -> 'K';
+            case QUEEN -> 'Q';
+            case BISHOP -> 'B';
+            case KNIGHT -> 'N';
+            case ROOK -> 'R';
+            case PAWN -> 'P';
+        };
+    }
+}
@@ -0,0 +1,79 @@
+package chess;
+
+/**
+ * Precomputed attack masks for the pieces that move a fixed step: knights,
+ * kings and pawns. Each table has one bitboard per square (bit 0 is a1,
+ * bit 63 is h8), and the pawn tables are indexed by {@link ChessGame.TeamColor#ordinal()}.
+ */
+final class StepAttacks {
+
+    private static final int[][] KNIGHT_STEPS = {{1, 2}, {1, -2}, {-1, 2}, {-1, -2}, {2, 1}, {2, -1}, {-2, 1}, {-2, -1}};
+    private static final int[][] KING_STEPS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}, {1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+
+    private static final long[] KNIGHT = new long[64];
+    private static final long[] KING = new long[64];
+    private static final long[][] PAWN_ATTACKS = new long[2][64];
+    private static final long[][] PAWN_PUSHES = new long[2][64];
+    private static final long[][] PAWN_DOUBLE_PUSHES = new long[2][64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            KNIGHT[square] = steps(square, KNIGHT_STEPS);
+            KING[square] = steps(square, KING_STEPS);
+            for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+                int side = color.ordinal();
+                int forward = color == ChessGame.TeamColor.WHITE ? 1 : -1;
+                int startRow = color == ChessGame.TeamColor.WHITE ? 1 : 6;
+                PAWN_ATTACKS[side][square] = steps(square, new int[][]{{forward, 1}, {forward, -1}});
+                PAWN_PUSHES[side][square] = steps(square, new int[][]{{forward, 0}});
+                if (square / 8 == startRow) {
+                    PAWN_DOUBLE_PUSHES[side][square] = steps(square, new int[][]{{2 * forward, 0}});
+                }
+            }
+        }
+    }
+
+    private StepAttacks() {
+    }
+
+    static long knightAttacks(int square) {
+        return KNIGHT[square];
+    }
+
+    static long kingAttacks(int square) {
+        return KING[square];
+    }
+
+    /**
+     * @return the squares a pawn of the given color captures on from this square
+     */
+    static long pawnAttacks(ChessGame.TeamColor color, int square) {
+        return PAWN_ATTACKS[color.ordinal()][square];
+    }
+
+    /**
+     * @return the square one step forward, or 0 if the pawn is on its last row
+     */
+    static long pawnPushes(ChessGame.TeamColor color, int square) {
+        return PAWN_PUSHES[color.ordinal()][square];
+    }
+
+    /**
+     * @return the square two steps forward, or 0 if the pawn is not on its starting row
+     */
+    static long pawnDoublePushes(ChessGame.TeamColor color, int square) {
+        return PAWN_DOUBLE_PUSHES[color.ordinal()][square];
+    }
+
+    private static long steps(int square, int[][] steps) {
+        long mask = 0;
+        for (int[] step : steps) {
+            int row = square / 8 + step[0];
+            int col = square % 8 + step[1];
+            if (row >= 0 && row < 8 && col >= 0 && col < 8) {
+                mask |= 1L << (row * 8 + col);
+            }
+        }
+        return mask;
+    }
+}
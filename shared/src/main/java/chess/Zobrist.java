@@ -0,0 +1,38 @@
+package chess;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random keys for Zobrist hashing. A position's key is the XOR of one key
+ * per piece on the board, plus {@link #BLACK_TO_MOVE} when it is black's
+ * turn, so adding or removing a piece updates the key with a single XOR.
+ * <p>
+ * The keys come from a fixed seed so that a position has the same key in
+ * every JVM, which lets keys be stored or compared across the client and server.
+ */
+final class Zobrist {
+
+    static final long BLACK_TO_MOVE;
+    private static final long[][] PIECE_SQUARE = new long[12][64];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x240C4E55L);
+        for (long[] keys : PIECE_SQUARE) {
+            for (int square = 0; square < 64; square++) {
+                keys[square] = random.nextLong();
+            }
+        }
+        BLACK_TO_MOVE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * @param piece index of the piece, {@code color.ordinal() * 6 + type.ordinal()}
+     * @return the key for that piece standing on the square
+     */
+    static long pieceKey(int piece, int square) {
+        return PIECE_SQUARE[piece][square];
+    }
+}
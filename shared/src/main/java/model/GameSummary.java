@@ -0,0 +1,7 @@
+package model;
+
+/**
+ * The listing columns of a game, without the board
+ */
+public record GameSummary(int gameID, String whiteUser, String blackUser, String gameName) {
+}
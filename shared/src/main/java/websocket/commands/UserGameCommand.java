@@ -16,17 +16,26 @@ public class UserGameCommand {
 
     private final Integer gameID;
 
+    // set on CONNECT by clients that apply MOVE messages themselves
+    private final boolean moveUpdates;
+
     public UserGameCommand(CommandType commandType, String authToken, Integer gameID) {
+        this(commandType, authToken, gameID, false);
+    }
+
+    public UserGameCommand(CommandType commandType, String authToken, Integer gameID, boolean moveUpdates) {
         this.commandType = commandType;
         this.authToken = authToken;
         this.gameID = gameID;
+        this.moveUpdates = moveUpdates;
     }
 
     public enum CommandType {
         CONNECT,
         MAKE_MOVE,
         LEAVE,
-        RESIGN
+        RESIGN,
+        SYNC
     }
 
     public CommandType getCommandType() {
@@ -41,6 +50,13 @@ public class UserGameCommand {
         return gameID;
     }
 
+    /**
+     * @return true if the client wants MOVE messages rather than a LOAD_GAME after every move
+     */
+    public boolean wantsMoveUpdates() {
+        return moveUpdates;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -52,11 +68,12 @@ public class UserGameCommand {
         UserGameCommand that = (UserGameCommand) o;
         return getCommandType() == that.getCommandType() &&
                 Objects.equals(getAuthToken(), that.getAuthToken()) &&
-                Objects.equals(getGameID(), that.getGameID());
+                Objects.equals(getGameID(), that.getGameID()) &&
+                wantsMoveUpdates() == that.wantsMoveUpdates();
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(getCommandType(), getAuthToken(), getGameID());
+        return Objects.hash(getCommandType(), getAuthToken(), getGameID(), wantsMoveUpdates());
     }
 }
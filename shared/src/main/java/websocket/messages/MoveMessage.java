@@ -0,0 +1,34 @@
+package websocket.messages;
+
+import chess.ChessGame;
+import chess.ChessMove;
+
+/**
+ * Tells a client about a single move instead of sending the whole game. The
+ * ply is the game's ply after the move, so a client can tell whether it
+ * missed one and needs a full LOAD_GAME instead.
+ */
+public class MoveMessage extends ServerMessage {
+    private final ChessMove move;
+    private final int ply;
+    private final ChessGame.GameStatus status;
+
+    public MoveMessage(ChessMove move, int ply, ChessGame.GameStatus status) {
+        super(ServerMessageType.MOVE);
+        this.move = move;
+        this.ply = ply;
+        this.status = status;
+    }
+
+    public ChessMove getMove() {
+        return move;
+    }
+
+    public int getPly() {
+        return ply;
+    }
+
+    public ChessGame.GameStatus getStatus() {
+        return status;
+    }
+}
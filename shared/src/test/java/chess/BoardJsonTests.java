@@ -0,0 +1,62 @@
+package chess;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BoardJsonTests {
+    // new ChessGame() as written by Gson before the board was backed by bitboards
+    private static final String ORIGINAL_START = "{\"board\":{\"squares\":["
+            + "[{\"pieceColor\":\"WHITE\",\"type\":\"ROOK\"},{\"pieceColor\":\"WHITE\",\"type\":\"KNIGHT\"},{\"pieceColor\":\"WHITE\",\"type\":\"BISHOP\"},{\"pieceColor\":\"WHITE\",\"type\":\"QUEEN\"}"
+            + ",{\"pieceColor\":\"WHITE\",\"type\":\"KING\"},{\"pieceColor\":\"WHITE\",\"type\":\"BISHOP\"},{\"pieceColor\":\"WHITE\",\"type\":\"KNIGHT\"},{\"pieceColor\":\"WHITE\",\"type\":\"ROOK\"}]"
+            + ",[{\"pieceColor\":\"WHITE\",\"type\":\"PAWN\"},{\"pieceColor\":\"WHITE\",\"type\":\"PAWN\"},{\"pieceColor\":\"WHITE\",\"type\":\"PAWN\"},{\"pieceColor\":\"WHITE\",\"type\":\"PAWN\"}"
+            + ",{\"pieceColor\":\"WHITE\",\"type\":\"PAWN\"},{\"pieceColor\":\"WHITE\",\"type\":\"PAWN\"},{\"pieceColor\":\"WHITE\",\"type\":\"PAWN\"},{\"pieceColor\":\"WHITE\",\"type\":\"PAWN\"}]"
+            + ",[null,null,null,null,null,null,null,null]"
+            + ",[null,null,null,null,null,null,null,null]"
+            + ",[null,null,null,null,null,null,null,null]"
+            + ",[null,null,null,null,null,null,null,null]"
+            + ",[{\"pieceColor\":\"BLACK\",\"type\":\"PAWN\"},{\"pieceColor\":\"BLACK\",\"type\":\"PAWN\"},{\"pieceColor\":\"BLACK\",\"type\":\"PAWN\"},{\"pieceColor\":\"BLACK\",\"type\":\"PAWN\"}"
+            + ",{\"pieceColor\":\"BLACK\",\"type\":\"PAWN\"},{\"pieceColor\":\"BLACK\",\"type\":\"PAWN\"},{\"pieceColor\":\"BLACK\",\"type\":\"PAWN\"},{\"pieceColor\":\"BLACK\",\"type\":\"PAWN\"}]"
+            + ",[{\"pieceColor\":\"BLACK\",\"type\":\"ROOK\"},{\"pieceColor\":\"BLACK\",\"type\":\"KNIGHT\"},{\"pieceColor\":\"BLACK\",\"type\":\"BISHOP\"},{\"pieceColor\":\"BLACK\",\"type\":\"QUEEN\"}"
+            + ",{\"pieceColor\":\"BLACK\",\"type\":\"KING\"},{\"pieceColor\":\"BLACK\",\"type\":\"BISHOP\"},{\"pieceColor\":\"BLACK\",\"type\":\"KNIGHT\"},{\"pieceColor\":\"BLACK\",\"type\":\"ROOK\"}]"
+            + "]},\"turn\":\"WHITE\",\"gameOver\":false}";
+
+    @Test
+    @DisplayName("Original JSON Still Loads")
+    public void originalJsonStillLoads() {
+        ChessGame game = new Gson().fromJson(ORIGINAL_START, ChessGame.class);
+        assertEquals(new ChessGame(), game);
+        assertEquals(new ChessGame().getZobristKey(), game.getZobristKey());
+        assertEquals(20, game.legalMoves().size());
+    }
+
+    @Test
+    @DisplayName("Board JSON Keeps Its Original Shape")
+    public void boardJsonKeepsItsOriginalShape() {
+        Gson gson = new Gson();
+        String json = gson.toJson(new ChessGame().getBoard());
+        assertEquals(ORIGINAL_START.substring("{\"board\":".length(), ORIGINAL_START.indexOf(",\"turn\"")), json);
+    }
+
+    @Test
+    @DisplayName("Played Game Round Trips")
+    public void playedGameRoundTrips() throws InvalidMoveException {
+        Gson gson = new Gson();
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        ChessGame loaded = gson.fromJson(gson.toJson(game), ChessGame.class);
+        assertEquals(game, loaded);
+        assertEquals(game.getZobristKey(), loaded.getZobristKey());
+        assertEquals(1, loaded.getPly());
+    }
+
+    @Test
+    @DisplayName("Bad Board JSON Is Rejected")
+    public void badBoardJsonIsRejected() {
+        assertThrows(JsonParseException.class, () -> new Gson().fromJson(
+                "{\"squares\":[[{\"pieceColor\":\"GREEN\",\"type\":\"ROOK\"}]]}", ChessBoard.class));
+    }
+}
@@ -0,0 +1,45 @@
+package chess;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChessGameStatusTests {
+
+    @Test
+    @DisplayName("Fool's Mate Is Checkmate")
+    public void foolsMate() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        assertEquals(ChessGame.GameStatus.NORMAL, game.getStatus());
+
+        game.makeMove(new ChessMove(new ChessPosition(2, 6), new ChessPosition(3, 6), null));
+        game.makeMove(new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null));
+        game.makeMove(new ChessMove(new ChessPosition(2, 7), new ChessPosition(4, 7), null));
+        game.makeMove(new ChessMove(new ChessPosition(8, 4), new ChessPosition(4, 8), null));
+
+        assertEquals(ChessGame.GameStatus.CHECKMATE, game.getStatus());
+        assertTrue(game.isInCheckmate(ChessGame.TeamColor.WHITE));
+        assertTrue(game.isGameOver());
+    }
+
+    @Test
+    @DisplayName("Status Follows Board Changes")
+    public void statusFollowsBoardChanges() {
+        ChessGame game = new ChessGame();
+        game.setBoard(new ChessBoard());
+        game.getBoard().addPiece(new ChessPosition(1, 1), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        game.getBoard().addPiece(new ChessPosition(8, 8), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        assertEquals(ChessGame.GameStatus.NORMAL, game.getStatus());
+
+        // edits made straight to the board are picked up without telling the game
+        game.getBoard().addPiece(new ChessPosition(8, 1), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
+        assertEquals(ChessGame.GameStatus.CHECK, game.getStatus());
+
+        game.getBoard().addPiece(new ChessPosition(7, 2), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN));
+        assertEquals(ChessGame.GameStatus.CHECKMATE, game.getStatus());
+
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        assertEquals(ChessGame.GameStatus.NORMAL, game.getStatus());
+    }
+}
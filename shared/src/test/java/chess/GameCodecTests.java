@@ -0,0 +1,62 @@
+package chess;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameCodecTests {
+
+    @Test
+    @DisplayName("Starting Game Round Trips")
+    public void startingGameRoundTrips() {
+        ChessGame game = new ChessGame();
+        byte[] bytes = game.encode();
+        assertEquals(ChessGame.ENCODED_LENGTH, bytes.length);
+        ChessGame decoded = ChessGame.decode(bytes);
+        assertEquals(game, decoded);
+        assertEquals(game.getZobristKey(), decoded.getZobristKey());
+    }
+
+    @Test
+    @DisplayName("Played Game Round Trips")
+    public void playedGameRoundTrips() throws InvalidMoveException {
+        // fool's mate, so the game ends with black to have moved last
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(new ChessPosition(2, 6), new ChessPosition(3, 6), null));
+        game.makeMove(new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null));
+        game.makeMove(new ChessMove(new ChessPosition(2, 7), new ChessPosition(4, 7), null));
+        game.makeMove(new ChessMove(new ChessPosition(8, 4), new ChessPosition(4, 8), null));
+        assertTrue(game.isGameOver());
+
+        ChessGame decoded = ChessGame.decode(game.encode());
+        assertEquals(game, decoded);
+        assertEquals(4, decoded.getPly());
+        assertEquals(1, decoded.getHalfmoveClock());
+        assertEquals(ChessGame.TeamColor.WHITE, decoded.getTeamTurn());
+        assertEquals(ChessGame.GameStatus.CHECKMATE, decoded.getStatus());
+    }
+
+    @Test
+    @DisplayName("Resignation Round Trips")
+    public void resignationRoundTrips() {
+        for (ChessGame.TeamColor team : ChessGame.TeamColor.values()) {
+            ChessGame game = new ChessGame();
+            game.resign(team);
+            ChessGame decoded = ChessGame.decode(game.encode());
+            assertEquals(game, decoded);
+            assertTrue(decoded.isGameOver());
+            assertEquals(team, decoded.getResignedTeam());
+        }
+        assertNull(ChessGame.decode(new ChessGame().encode()).getResignedTeam());
+    }
+
+    @Test
+    @DisplayName("Bad Encodings Are Rejected")
+    public void badEncodingsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.decode(new byte[3]));
+        byte[] bytes = new ChessGame().encode();
+        bytes[20] = (byte) 0xFF;
+        assertThrows(IllegalArgumentException.class, () -> ChessGame.decode(bytes));
+    }
+}
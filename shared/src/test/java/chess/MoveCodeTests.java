@@ -0,0 +1,43 @@
+package chess;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MoveCodeTests {
+
+    @Test
+    @DisplayName("Every Move Round Trips")
+    public void everyMoveRoundTrips() {
+        ChessPiece.PieceType[] promotions = {null, ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.ROOK,
+                ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.KNIGHT};
+        for (int from = 0; from < 64; from++) {
+            for (int to = 0; to < 64; to++) {
+                for (ChessPiece.PieceType promotion : promotions) {
+                    ChessMove move = new ChessMove(ChessPosition.fromSquare(from), ChessPosition.fromSquare(to), promotion);
+                    int code = move.toCode();
+                    assertTrue(code >= 0 && code <= Short.MAX_VALUE);
+                    assertEquals(move, ChessMove.fromCode(code));
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Ply Counts Moves")
+    public void plyCountsMoves() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        assertEquals(0, game.getPly());
+        game.makeMove(new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null));
+        game.makeMove(new ChessMove(new ChessPosition(8, 7), new ChessPosition(6, 6), null));
+        assertThrows(InvalidMoveException.class,
+                () -> game.makeMove(new ChessMove(new ChessPosition(6, 6), new ChessPosition(8, 7), null)));
+        game.makeMove(new ChessMove(new ChessPosition(3, 6), new ChessPosition(1, 7), null));
+        game.makeMove(new ChessMove(new ChessPosition(6, 6), new ChessPosition(8, 7), null));
+        assertEquals(4, game.getPly());
+
+        // back in the starting position, and equality ignores how the game got there
+        assertEquals(new ChessGame(), game);
+    }
+}
@@ -0,0 +1,128 @@
+package chess;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import passoff.chess.TestUtilities;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Reference node counts from the standard perft positions. Depths are kept
+ * below the point where castling or en passant would change the count,
+ * since neither is part of this game's rules.
+ */
+public class PerftTests {
+
+    @Test
+    @DisplayName("Starting Position")
+    public void startingPosition() {
+        ChessGame game = new ChessGame();
+        assertEquals(20, Perft.perft(game, 1));
+        assertEquals(400, Perft.perft(game, 2));
+        assertEquals(8902, Perft.perft(game, 3));
+        assertEquals(197281, Perft.perft(game, 4));
+    }
+
+    @Test
+    @DisplayName("Rook Endgame With Pins")
+    public void rookEndgame() {
+        // 8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - -
+        ChessGame game = gameOf(ChessGame.TeamColor.WHITE, """
+                | | | | | | | | |
+                | | |p| | | | | |
+                | | | |p| | | | |
+                |K|P| | | | | |r|
+                | |R| | | |p| |k|
+                | | | | | | | | |
+                | | | | |P| |P| |
+                | | | | | | | | |
+                """);
+        assertEquals(14, Perft.perft(game, 1));
+        assertEquals(191, Perft.perft(game, 2));
+    }
+
+    @Test
+    @DisplayName("Promotions")
+    public void promotions() {
+        // n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - -
+        ChessGame game = gameOf(ChessGame.TeamColor.BLACK, """
+                |n| |n| | | | | |
+                |P|P|P|k| | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | |K|p|p|p|
+                | | | | | |N| |N|
+                """);
+        assertEquals(24, Perft.perft(game, 1));
+        assertEquals(496, Perft.perft(game, 2));
+        assertEquals(9483, Perft.perft(game, 3));
+        assertEquals(182838, Perft.perft(game, 4));
+    }
+
+    @Test
+    @DisplayName("Middlegame")
+    public void middlegame() {
+        // r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - -
+        ChessGame game = gameOf(ChessGame.TeamColor.WHITE, """
+                |r| | | | |r|k| |
+                | |p|p| |q|p|p|p|
+                |p| |n|p| |n| | |
+                | | |b| |p| |B| |
+                | | |B| |P| |b| |
+                |P| |N|P| |N| | |
+                | |P|P| |Q|P|P|P|
+                |R| | | | |R|K| |
+                """);
+        assertEquals(46, Perft.perft(game, 1));
+        assertEquals(2079, Perft.perft(game, 2));
+        assertEquals(89890, Perft.perft(game, 3));
+    }
+
+    @Test
+    @DisplayName("Divide Matches Perft And Restores Board")
+    public void divide() {
+        ChessGame game = new ChessGame();
+        Map<ChessMove, Long> counts = Perft.divide(game, 3);
+        assertEquals(20, counts.size());
+        assertEquals(8902, counts.values().stream().mapToLong(Long::longValue).sum());
+        assertEquals(TestUtilities.defaultBoard(), game.getBoard());
+    }
+
+    @Test
+    @DisplayName("Parallel Perft Matches Serial")
+    public void parallelPerft() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ChessGame start = new ChessGame();
+            assertEquals(197281, ParallelPerft.perft(start, 4, 1, pool));
+            assertEquals(197281, ParallelPerft.perft(start, 4, 2, pool));
+            assertEquals(TestUtilities.defaultBoard(), start.getBoard());
+
+            ChessGame promotions = gameOf(ChessGame.TeamColor.BLACK, """
+                    |n| |n| | | | | |
+                    |P|P|P|k| | | | |
+                    | | | | | | | | |
+                    | | | | | | | | |
+                    | | | | | | | | |
+                    | | | | | | | | |
+                    | | | | |K|p|p|p|
+                    | | | | | |N| |N|
+                    """);
+            assertEquals(Perft.perft(promotions, 4), ParallelPerft.perft(promotions, 4, 2, pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static ChessGame gameOf(ChessGame.TeamColor turn, String boardText) {
+        ChessGame game = new ChessGame();
+        game.setBoard(TestUtilities.loadBoard(boardText));
+        game.setTeamTurn(turn);
+        return game;
+    }
+}
@@ -0,0 +1,113 @@
+package chess;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PgnWriterTests {
+
+    @Test
+    @DisplayName("Fool's Mate")
+    public void foolsMate() throws IOException {
+        Map<String, String> tags = new LinkedHashMap<>();
+        tags.put("Event", "Casual \"game\"");
+        tags.put("White", "alice");
+        tags.put("Black", "bob");
+        StringBuilder out = new StringBuilder();
+        new PgnWriter(out).writeGame(tags, new ChessGame(), List.of(
+                move("f2", "f3"), move("e7", "e5"), move("g2", "g4"), move("d8", "h4")));
+        assertEquals("""
+                [Event "Casual \\"game\\""]
+                [White "alice"]
+                [Black "bob"]
+                [Result "0-1"]
+
+                1. f3 e5 2. g4 Qh4# 0-1
+
+                """, out.toString());
+    }
+
+    @Test
+    @DisplayName("Captures, Checks And Promotions")
+    public void capturesChecksAndPromotions() {
+        ChessGame game = ChessGame.fromFen("4k3/1P6/8/8/8/8/8/4K3 w - - 0 1");
+        assertEquals("b8=Q+", PgnWriter.toSan(game, new ChessMove(pos("b7"), pos("b8"), ChessPiece.PieceType.QUEEN)));
+
+        game = ChessGame.fromFen("4k3/8/8/3p4/4P3/8/8/4K3 w - - 0 1");
+        assertEquals("exd5", PgnWriter.toSan(game, move("e4", "d5")));
+        assertEquals("Kxd5", PgnWriter.toSan(ChessGame.fromFen("8/8/8/3p4/4K3/8/8/k7 w - - 0 1"), move("e4", "d5")));
+    }
+
+    @Test
+    @DisplayName("Ambiguous Moves Are Disambiguated")
+    public void ambiguousMovesAreDisambiguated() {
+        // knights on b1 and f1 can both reach d2, rooks on a1 and a5 can both reach a3
+        String fen = "4k3/8/8/R7/8/8/8/RN2KN2 w - - 0 1";
+        assertEquals("Nbd2", PgnWriter.toSan(ChessGame.fromFen(fen), move("b1", "d2")));
+        assertEquals("R1a3", PgnWriter.toSan(ChessGame.fromFen(fen), move("a1", "a3")));
+        assertEquals("Rb5", PgnWriter.toSan(ChessGame.fromFen(fen), move("a5", "b5")));
+
+        // queens on a1, a3 and c1 can all reach b2
+        assertEquals("Qa1b2", PgnWriter.toSan(ChessGame.fromFen("4k3/8/8/8/8/Q7/8/Q1Q1K3 w - - 0 1"),
+                move("a1", "b2")));
+    }
+
+    @Test
+    @DisplayName("Resignations Are Decisive")
+    public void resignationsAreDecisive() throws IOException {
+        StringBuilder out = new StringBuilder();
+        new PgnWriter(out).writeGame(Map.of(), new ChessGame(), List.of(move("e2", "e4")),
+                ChessGame.TeamColor.BLACK);
+        assertEquals("""
+                [Result "1-0"]
+
+                1. e4 1-0
+
+                """, out.toString());
+
+        out.setLength(0);
+        ChessGame resigned = new ChessGame();
+        resigned.resign(ChessGame.TeamColor.WHITE);
+        new PgnWriter(out).writeGame(Map.of(), resigned, List.of());
+        assertTrue(out.toString().startsWith("[Result \"0-1\"]"));
+    }
+
+    @Test
+    @DisplayName("Set Up Positions Include FEN")
+    public void setUpPositionsIncludeFen() throws IOException {
+        StringBuilder out = new StringBuilder();
+        ChessGame start = ChessGame.fromFen("4k3/8/8/8/8/8/8/R3K3 b - - 0 40");
+        new PgnWriter(out).writeGame(Map.of(), start, List.of(move("e8", "f7"), move("a1", "a7")));
+        assertEquals("""
+                [Result "*"]
+                [SetUp "1"]
+                [FEN "4k3/8/8/8/8/8/8/R3K3 b - - 0 40"]
+
+                40... Kf7 41. Ra7+ *
+
+                """, out.toString());
+    }
+
+    @Test
+    @DisplayName("Illegal Moves Are Rejected")
+    public void illegalMovesAreRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> PgnWriter.toSan(new ChessGame(), move("e2", "e5")));
+        assertThrows(IllegalArgumentException.class,
+                () -> PgnWriter.toSan(new ChessGame(), move("e4", "e5")));
+    }
+
+    private static ChessMove move(String from, String to) {
+        return new ChessMove(pos(from), pos(to), null);
+    }
+
+    private static ChessPosition pos(String square) {
+        return new ChessPosition(square.charAt(1) - '0', square.charAt(0) - 'a' + 1);
+    }
+}
@@ -0,0 +1,59 @@
+package chess;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import passoff.chess.TestUtilities;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ZobristTests {
+
+    @Test
+    @DisplayName("Same Position Same Key")
+    public void samePositionSameKey() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        long start = game.getZobristKey();
+
+        // knights out and back again
+        game.makeMove(new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null));
+        game.makeMove(new ChessMove(new ChessPosition(8, 7), new ChessPosition(6, 6), null));
+        assertNotEquals(start, game.getZobristKey());
+        game.makeMove(new ChessMove(new ChessPosition(3, 6), new ChessPosition(1, 7), null));
+        game.makeMove(new ChessMove(new ChessPosition(6, 6), new ChessPosition(8, 7), null));
+
+        assertEquals(start, game.getZobristKey());
+        assertEquals(TestUtilities.defaultBoard().getZobristKey(), game.getBoard().getZobristKey());
+    }
+
+    @Test
+    @DisplayName("Side To Move Changes Key")
+    public void sideToMove() {
+        ChessGame game = new ChessGame();
+        long white = game.getZobristKey();
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        assertNotEquals(white, game.getZobristKey());
+        assertEquals(white, game.getBoard().getZobristKey());
+    }
+
+    @Test
+    @DisplayName("Undo Restores Key")
+    public void undoRestoresKey() {
+        ChessBoard board = TestUtilities.loadBoard("""
+                | | | | |k| | | |
+                | |P| | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | |K| | | |
+                """);
+        long before = board.getZobristKey();
+        int undo = board.doMove(new ChessMove(new ChessPosition(7, 2), new ChessPosition(8, 2),
+                ChessPiece.PieceType.QUEEN));
+        assertNotEquals(before, board.getZobristKey());
+        board.undoMove(undo);
+        assertEquals(before, board.getZobristKey());
+        assertEquals(before, board.copyBoard().getZobristKey());
+    }
+}